@@ -0,0 +1,89 @@
+package com.github.mproberts.rxtools.map;
+
+import jdk.jfr.FlightRecorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link SubjectMapMetrics} which records Java Flight Recorder events for faults, key
+ * bindings and write lock hold times, along with a periodic event counting emissions so
+ * that bursts can be correlated with other activity in a recording. Events are only
+ * recorded while a recording with the rxtools events enabled is running.
+ * <p>
+ * This class requires the jdk.jfr module and is not loaded on runtimes without it. It is
+ * installed on all new maps when the {@link SubjectMapMetrics#FLIGHT_RECORDER_PROPERTY}
+ * system property is set, or may be set on individual maps. Each instance registers its own
+ * periodic event, so a single instance should be shared between maps.
+ */
+public class FlightRecorderSubjectMapMetrics extends SubjectMapMetrics
+{
+    private final AtomicLong _delivered = new AtomicLong();
+    private final AtomicLong _dropped = new AtomicLong();
+
+    public FlightRecorderSubjectMapMetrics()
+    {
+        FlightRecorder.addPeriodicEvent(SubjectMapEmissionsEvent.class, new Runnable() {
+            @Override
+            public void run()
+            {
+                SubjectMapEmissionsEvent event = new SubjectMapEmissionsEvent();
+
+                event.delivered = _delivered.getAndSet(0);
+                event.dropped = _dropped.getAndSet(0);
+                event.commit();
+            }
+        });
+    }
+
+    @Override
+    public void onWriteLockHold(long holdNanos)
+    {
+        SubjectMapWriteLockEvent event = new SubjectMapWriteLockEvent();
+
+        if (event.isEnabled()) {
+            event.holdTime = holdNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onAttach()
+    {
+        commitBinding(true);
+    }
+
+    @Override
+    public void onDetach()
+    {
+        commitBinding(false);
+    }
+
+    private static void commitBinding(boolean bound)
+    {
+        SubjectMapBindingEvent event = new SubjectMapBindingEvent();
+
+        if (event.isEnabled()) {
+            event.bound = bound;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onEmit(boolean bound)
+    {
+        (bound ? _delivered : _dropped).incrementAndGet();
+    }
+
+    @Override
+    public void onFault(int keyCount, long durationNanos, Throwable error)
+    {
+        SubjectMapFaultEvent event = new SubjectMapFaultEvent();
+
+        if (event.isEnabled()) {
+            event.keyCount = keyCount;
+            event.faultDuration = durationNanos;
+            event.error = error == null ? null : error.getClass().getName();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.mproberts.rxtools.map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("rxtools.SubjectMapBinding")
+@Label("SubjectMap Binding")
+@Description("A key of a SubjectMap was bound by its first subscriber or unbound by its last")
+@Category({"rxtools", "SubjectMap"})
+class SubjectMapBindingEvent extends jdk.jfr.Event
+{
+    @Label("Bound")
+    boolean bound;
+}
@@ -0,0 +1,23 @@
+package com.github.mproberts.rxtools.map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+@Name("rxtools.SubjectMapEmissions")
+@Label("SubjectMap Emissions")
+@Description("The number of emissions to all SubjectMaps since the previous event")
+@Category({"rxtools", "SubjectMap"})
+@Period("1 s")
+@StackTrace(false)
+class SubjectMapEmissionsEvent extends jdk.jfr.Event
+{
+    @Label("Delivered")
+    long delivered;
+
+    @Label("Dropped")
+    long dropped;
+}
@@ -0,0 +1,26 @@
+package com.github.mproberts.rxtools.map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("rxtools.SubjectMapFault")
+@Label("SubjectMap Fault")
+@Description("A fault of one or more keys of a SubjectMap")
+@Category({"rxtools", "SubjectMap"})
+@StackTrace(false)
+class SubjectMapFaultEvent extends jdk.jfr.Event
+{
+    @Label("Key Count")
+    int keyCount;
+
+    @Label("Fault Duration")
+    @Timespan
+    long faultDuration;
+
+    @Label("Error")
+    String error;
+}
@@ -0,0 +1,20 @@
+package com.github.mproberts.rxtools.map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("rxtools.SubjectMapWriteLock")
+@Label("SubjectMap Write Lock")
+@Description("The write lock of a SubjectMap was held by a lookup which missed the cache")
+@Category({"rxtools", "SubjectMap"})
+@StackTrace(false)
+class SubjectMapWriteLockEvent extends jdk.jfr.Event
+{
+    @Label("Hold Time")
+    @Timespan
+    long holdTime;
+}
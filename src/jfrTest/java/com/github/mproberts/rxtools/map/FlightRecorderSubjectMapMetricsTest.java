@@ -0,0 +1,71 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import io.reactivex.subscribers.TestSubscriber;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FlightRecorderSubjectMapMetricsTest
+{
+    @Test
+    public void testEventsRecorded() throws Exception
+    {
+        SubjectMap<String, Integer> source = new SubjectMap<>();
+
+        source.setMetrics(new FlightRecorderSubjectMapMetrics());
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return Single.just(key.length());
+            }
+        });
+
+        File output = File.createTempFile("subjectmap", ".jfr");
+        Map<String, Integer> eventCounts = new HashMap<>();
+
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("rxtools.SubjectMapFault");
+                recording.enable("rxtools.SubjectMapBinding");
+                recording.enable("rxtools.SubjectMapWriteLock");
+                recording.start();
+
+                TestSubscriber<Integer> testSubscriber = source.get("hello").test();
+
+                testSubscriber.assertValues(5);
+                testSubscriber.dispose();
+
+                recording.stop();
+                recording.dump(output.toPath());
+            }
+
+            for (RecordedEvent event : RecordingFile.readAllEvents(output.toPath())) {
+                String name = event.getEventType().getName();
+                Integer count = eventCounts.get(name);
+
+                eventCounts.put(name, count == null ? 1 : count + 1);
+
+                if (name.equals("rxtools.SubjectMapFault")) {
+                    assertEquals(1, event.getInt("keyCount"));
+                    assertNull(event.getString("error"));
+                }
+            }
+        }
+        finally {
+            output.delete();
+        }
+
+        assertEquals(Integer.valueOf(1), eventCounts.get("rxtools.SubjectMapFault"));
+        assertEquals(Integer.valueOf(2), eventCounts.get("rxtools.SubjectMapBinding"));
+        assertEquals(Integer.valueOf(1), eventCounts.get("rxtools.SubjectMapWriteLock"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures subscribers binding and unbinding keys, each binding faulting the value in
+ */
+@State(Scope.Benchmark)
+public class SubjectMapAttachBenchmark
+{
+    private static final int KEYS = 1024;
+
+    private List<Flowable<Integer>> _observables;
+
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        private int _next;
+
+        int nextKey()
+        {
+            return _next++ & (KEYS - 1);
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        SubjectMap<Integer, Integer> map = new SubjectMap<>();
+
+        map.setFaultHandler(new Function<Integer, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(Integer key)
+            {
+                return Single.just(key);
+            }
+        });
+
+        _observables = new ArrayList<>(KEYS);
+
+        for (int i = 0; i < KEYS; ++i) {
+            _observables.add(map.get(i));
+        }
+    }
+
+    @Benchmark
+    public void attachDetach(Cursor cursor)
+    {
+        _observables.get(cursor.nextKey())
+                .subscribe()
+                .dispose();
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.mproberts.rxtools.map;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the SubjectMap benchmarks once for each thread count, reporting throughput in ops/sec
+ * along with the allocation rate measured by the GC profiler. Results are written as JSON,
+ * one file per thread count.
+ * <p>
+ * The thread counts default to 1, 2, 4 and 8 and may be overridden with the
+ * {@code benchmark.threads} system property, e.g. {@code -Dbenchmark.threads=1,16}. The
+ * {@code benchmark.include} system property restricts the benchmarks run to those matching
+ * the supplied regular expression, and {@code benchmark.quick} runs a single short iteration
+ * of each benchmark to check that they work.
+ */
+public final class SubjectMapBenchmarks
+{
+    private SubjectMapBenchmarks()
+    {
+        // intentionally blank
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        File outputDirectory = new File(args.length > 0 ? args[0] : "build/reports/jmh");
+        String include = System.getProperty("benchmark.include", SubjectMapBenchmarks.class.getPackage().getName() + ".SubjectMap.*Benchmark");
+
+        outputDirectory.mkdirs();
+
+        for (String threads : System.getProperty("benchmark.threads", "1,2,4,8").split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+
+            ChainedOptionsBuilder builder = new OptionsBuilder()
+                    .include(include)
+                    .threads(threadCount)
+                    .mode(Mode.Throughput)
+                    .timeUnit(TimeUnit.SECONDS)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(outputDirectory, "subjectmap-" + threadCount + "-threads.json").getPath());
+
+            if (Boolean.getBoolean("benchmark.quick")) {
+                builder.forks(1)
+                        .warmupIterations(1)
+                        .warmupTime(TimeValue.milliseconds(200))
+                        .measurementIterations(1)
+                        .measurementTime(TimeValue.milliseconds(200));
+            }
+
+            Options options = builder.build();
+
+            new Runner(options).run();
+        }
+    }
+}
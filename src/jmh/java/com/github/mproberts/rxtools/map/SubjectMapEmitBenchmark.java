@@ -0,0 +1,64 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.disposables.CompositeDisposable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures emissions to keys with a subscriber and to keys which are not bound
+ */
+@State(Scope.Benchmark)
+public class SubjectMapEmitBenchmark
+{
+    private static final int KEYS = 1024;
+
+    private SubjectMap<Integer, Integer> _map;
+    private CompositeDisposable _subscriptions;
+
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        private int _next;
+
+        int nextKey()
+        {
+            return _next++ & (KEYS - 1);
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        _map = new SubjectMap<>();
+        _subscriptions = new CompositeDisposable();
+
+        for (int i = 0; i < KEYS; ++i) {
+            _subscriptions.add(_map.get(i).subscribe());
+        }
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        _subscriptions.dispose();
+    }
+
+    @Benchmark
+    public void onNextBound(Cursor cursor)
+    {
+        int key = cursor.nextKey();
+
+        _map.onNext(key, key);
+    }
+
+    @Benchmark
+    public void onNextUnbound(Cursor cursor)
+    {
+        int key = cursor.nextKey();
+
+        _map.onNext(KEYS + key, key);
+    }
+}
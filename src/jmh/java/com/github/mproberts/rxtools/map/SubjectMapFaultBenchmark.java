@@ -0,0 +1,71 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Single;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.functions.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures re-faulting every bound key through either a single or a multi fault handler
+ */
+@State(Scope.Benchmark)
+public class SubjectMapFaultBenchmark
+{
+    private static final int BOUND_KEYS = 1000;
+
+    @Param({ "single", "multi" })
+    public String handler;
+
+    private SubjectMap<Integer, Integer> _map;
+    private CompositeDisposable _subscriptions;
+
+    @Setup
+    public void setup()
+    {
+        _map = new SubjectMap<>();
+        _subscriptions = new CompositeDisposable();
+
+        if (handler.equals("single")) {
+            _map.setFaultHandler(new Function<Integer, Single<Integer>>() {
+                @Override
+                public Single<Integer> apply(Integer key)
+                {
+                    return Single.just(key);
+                }
+            });
+        }
+        else {
+            _map.setMultiFaultHandler(new Function<List<Integer>, Single<List<Integer>>>() {
+                @Override
+                public Single<List<Integer>> apply(List<Integer> keys)
+                {
+                    return Single.just((List<Integer>) new ArrayList<>(keys));
+                }
+            });
+        }
+
+        for (int i = 0; i < BOUND_KEYS; ++i) {
+            _subscriptions.add(_map.get(i).subscribe());
+        }
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        _subscriptions.dispose();
+    }
+
+    @Benchmark
+    public void faultAllBound()
+    {
+        _map.faultAllBound().blockingAwait();
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures batched lookups of keys whose observables are already cached
+ */
+@State(Scope.Benchmark)
+public class SubjectMapGetAllBenchmark
+{
+    @Param({ "10", "100", "1000", "10000", "100000" })
+    public int keyCount;
+
+    private SubjectMap<Integer, Integer> _map;
+    private List<Integer> _keys;
+    private List<Flowable<Integer>> _retained;
+
+    @Setup
+    public void setup()
+    {
+        _map = new SubjectMap<>();
+        _keys = new ArrayList<>(keyCount);
+
+        for (int i = 0; i < keyCount; ++i) {
+            _keys.add(i);
+        }
+
+        // hold the observables so that every lookup is a hit
+        _retained = _map.getAll(_keys);
+    }
+
+    @Benchmark
+    public List<Flowable<Integer>> getAll()
+    {
+        return _map.getAll(_keys);
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import io.reactivex.disposables.CompositeDisposable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures single key lookups which are served by the weak cache under the read lock, and
+ * lookups of new keys which escalate to the write lock to create a binding
+ */
+@State(Scope.Benchmark)
+public class SubjectMapGetBenchmark
+{
+    private static final int BOUND_KEYS = 1024;
+
+    private SubjectMap<Integer, Integer> _map;
+    private CompositeDisposable _subscriptions;
+
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        private int _next;
+
+        int nextBoundKey()
+        {
+            return _next++ & (BOUND_KEYS - 1);
+        }
+
+        int nextMissingKey()
+        {
+            // keys are never retained, so the cleared weak cache entries are replaced over time
+            return BOUND_KEYS + (_next++ & ((1 << 20) - 1));
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        _map = new SubjectMap<>();
+        _subscriptions = new CompositeDisposable();
+
+        for (int i = 0; i < BOUND_KEYS; ++i) {
+            _subscriptions.add(_map.get(i).subscribe());
+        }
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        _subscriptions.dispose();
+    }
+
+    @Benchmark
+    public Flowable<Integer> getHit(Cursor cursor)
+    {
+        return _map.get(cursor.nextBoundKey());
+    }
+
+    @Benchmark
+    public Flowable<Integer> getMiss(Cursor cursor)
+    {
+        return _map.get(cursor.nextMissingKey());
+    }
+}
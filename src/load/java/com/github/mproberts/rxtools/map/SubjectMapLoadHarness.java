@@ -0,0 +1,273 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drives a {@link SubjectMap} with a production-shaped workload: a large key space accessed
+ * with a Zipfian distribution, subscribers constantly binding and unbinding keys, emitters
+ * publishing to keys whether or not they are bound, and faults which take time to complete.
+ * Subscribers do not retain the observables they unbind, so weak references are cleared by
+ * the garbage collector while the map is in use.
+ * <p>
+ * Throughput, end-to-end emission latency percentiles and the time spent in garbage collection
+ * are reported at a fixed interval and summarized once the run completes. The workload is
+ * configured with system properties:
+ * <ul>
+ *     <li>{@code load.keys} the number of distinct keys, default 1000000</li>
+ *     <li>{@code load.theta} the Zipfian skew of key accesses in [0, 1), 0 being uniform, default 0.99</li>
+ *     <li>{@code load.subscriberThreads} the number of threads binding keys, default 4</li>
+ *     <li>{@code load.subscriptionsPerThread} the number of keys each subscriber thread holds bound, default 1000</li>
+ *     <li>{@code load.emitterThreads} the number of threads emitting values, default 2</li>
+ *     <li>{@code load.emitRate} the total emissions per second, or 0 for unlimited, default 100000</li>
+ *     <li>{@code load.faultLatencyMillis} the time taken by each fault, default 5</li>
+ *     <li>{@code load.durationSeconds} the length of the run, default 60</li>
+ *     <li>{@code load.reportSeconds} the interval between reports, default 5</li>
+ * </ul>
+ */
+public final class SubjectMapLoadHarness
+{
+    private final long _keyCount = Long.getLong("load.keys", 1000000);
+    private final double _theta = Double.parseDouble(System.getProperty("load.theta", "0.99"));
+    private final int _subscriberThreads = Integer.getInteger("load.subscriberThreads", 4);
+    private final int _subscriptionsPerThread = Integer.getInteger("load.subscriptionsPerThread", 1000);
+    private final int _emitterThreads = Integer.getInteger("load.emitterThreads", 2);
+    private final long _emitRate = Long.getLong("load.emitRate", 100000);
+    private final long _faultLatencyMillis = Long.getLong("load.faultLatencyMillis", 5);
+    private final long _durationSeconds = Long.getLong("load.durationSeconds", 60);
+    private final long _reportSeconds = Long.getLong("load.reportSeconds", 5);
+
+    private final SubjectMap<Long, Long> _map = new SubjectMap<>();
+    private final InMemorySubjectMapMetrics _metrics = new InMemorySubjectMapMetrics();
+    private final ZipfianGenerator _keys = new ZipfianGenerator(_keyCount, _theta);
+
+    private final AtomicLong _subscriptions = new AtomicLong();
+    private final AtomicLong _emissions = new AtomicLong();
+    private final AtomicLong _deliveries = new AtomicLong();
+    private final AtomicReference<InMemorySubjectMapMetrics.Histogram> _intervalLatency = new AtomicReference<>(new InMemorySubjectMapMetrics.Histogram());
+    private final InMemorySubjectMapMetrics.Histogram _totalLatency = new InMemorySubjectMapMetrics.Histogram();
+
+    private volatile boolean _running = true;
+
+    private SubjectMapLoadHarness()
+    {
+        _map.setMetrics(_metrics);
+        _map.setFaultHandler(new Function<Long, Single<Long>>() {
+            @Override
+            public Single<Long> apply(Long key)
+            {
+                // faulted values are marked as negative so they are not counted as emissions
+                Single<Long> value = Single.just(-1L);
+
+                if (_faultLatencyMillis > 0) {
+                    value = value.delay(_faultLatencyMillis, TimeUnit.MILLISECONDS);
+                }
+
+                return value;
+            }
+        });
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        new SubjectMapLoadHarness().run();
+    }
+
+    private void run() throws InterruptedException
+    {
+        System.out.println(String.format("keys=%d theta=%.2f subscriberThreads=%d subscriptionsPerThread=%d emitterThreads=%d emitRate=%d faultLatencyMillis=%d",
+                _keyCount, _theta, _subscriberThreads, _subscriptionsPerThread, _emitterThreads, _emitRate, _faultLatencyMillis));
+
+        List<Thread> threads = new ArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(_subscriberThreads + _emitterThreads);
+
+        for (int i = 0; i < _subscriberThreads; ++i) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run()
+                {
+                    try {
+                        churnSubscriptions();
+                    }
+                    finally {
+                        finished.countDown();
+                    }
+                }
+            }, "LoadSubscriber-" + i));
+        }
+
+        for (int i = 0; i < _emitterThreads; ++i) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run()
+                {
+                    try {
+                        emit();
+                    }
+                    finally {
+                        finished.countDown();
+                    }
+                }
+            }, "LoadEmitter-" + i));
+        }
+
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(_durationSeconds);
+        Snapshot previous = new Snapshot();
+        Snapshot first = previous;
+
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(_reportSeconds), TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()) + 1));
+
+            InMemorySubjectMapMetrics.Histogram latency = _intervalLatency.getAndSet(new InMemorySubjectMapMetrics.Histogram());
+            Snapshot current = new Snapshot();
+
+            report("interval", previous, current, latency);
+
+            previous = current;
+        }
+
+        _running = false;
+        finished.await();
+
+        report("total", first, new Snapshot(), _totalLatency);
+    }
+
+    private void churnSubscriptions()
+    {
+        Disposable[] held = new Disposable[_subscriptionsPerThread];
+        int next = 0;
+
+        while (_running) {
+            if (held[next] != null) {
+                held[next].dispose();
+            }
+
+            // the observable is not retained beyond the subscription, so its weak references
+            // become eligible for collection as soon as it is unbound
+            Flowable<Long> observable = _map.get(_keys.next());
+            final long subscribedAt = System.nanoTime();
+
+            held[next] = observable.subscribe(new Consumer<Long>() {
+                @Override
+                public void accept(Long emittedAt)
+                {
+                    // values emitted before subscribing are replays and faults are negative
+                    if (emittedAt >= subscribedAt) {
+                        long latency = System.nanoTime() - emittedAt;
+
+                        _intervalLatency.get().record(latency);
+                        _totalLatency.record(latency);
+                        _deliveries.incrementAndGet();
+                    }
+                }
+            });
+
+            _subscriptions.incrementAndGet();
+            next = (next + 1) % held.length;
+        }
+
+        for (Disposable disposable : held) {
+            if (disposable != null) {
+                disposable.dispose();
+            }
+        }
+    }
+
+    private void emit()
+    {
+        long intervalNanos = _emitRate > 0 ? TimeUnit.SECONDS.toNanos(_emitterThreads) / _emitRate : 0;
+        long nextEmission = System.nanoTime();
+
+        while (_running) {
+            if (intervalNanos > 0) {
+                long now = System.nanoTime();
+
+                if (now < nextEmission) {
+                    long sleepNanos = nextEmission - now;
+
+                    try {
+                        Thread.sleep(sleepNanos / 1000000, (int) (sleepNanos % 1000000));
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                nextEmission += intervalNanos;
+            }
+
+            _map.onNext(_keys.next(), System.nanoTime());
+            _emissions.incrementAndGet();
+        }
+    }
+
+    private void report(String label, Snapshot from, Snapshot to, InMemorySubjectMapMetrics.Histogram latency)
+    {
+        double seconds = (to.time - from.time) / 1e9;
+        long gcMillis = to.gcMillis - from.gcMillis;
+
+        System.out.println(String.format(
+                "[%s %.1fs] subscribes/s=%.0f emits/s=%.0f deliveries/s=%.0f" +
+                        " latency(us) p50=%d p99=%d p999=%d max=%d" +
+                        " gc count=%d time=%dms (%.1f%%)" +
+                        " bound=%d hits=%d misses=%d fault p99(us)=%d",
+                label,
+                seconds,
+                (to.subscriptions - from.subscriptions) / seconds,
+                (to.emissions - from.emissions) / seconds,
+                (to.deliveries - from.deliveries) / seconds,
+                TimeUnit.NANOSECONDS.toMicros(latency.percentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(latency.percentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(latency.percentile(99.9)),
+                TimeUnit.NANOSECONDS.toMicros(latency.max()),
+                to.gcCount - from.gcCount,
+                gcMillis,
+                seconds > 0 ? 100.0 * gcMillis / (seconds * 1000) : 0,
+                _metrics.boundKeys(),
+                _metrics.hits(),
+                _metrics.misses(),
+                TimeUnit.NANOSECONDS.toMicros(_metrics.faultLatency().percentile(99))));
+    }
+
+    private final class Snapshot
+    {
+        final long time = System.nanoTime();
+        final long subscriptions = _subscriptions.get();
+        final long emissions = _emissions.get();
+        final long deliveries = _deliveries.get();
+        final long gcCount;
+        final long gcMillis;
+
+        Snapshot()
+        {
+            long count = 0;
+            long millis = 0;
+
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, collector.getCollectionCount());
+                millis += Math.max(0, collector.getCollectionTime());
+            }
+
+            gcCount = count;
+            gcMillis = millis;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.mproberts.rxtools.map;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates integers in {@code [0, itemCount)} following a Zipfian distribution, in which the
+ * item of rank {@code i} is chosen with probability proportional to {@code 1 / (i + 1)^theta},
+ * so that a small number of low ranked items receive most of the accesses. A theta of 0
+ * produces a uniform distribution.
+ * <p>
+ * Uses the rejection-free method of Gray et al. from "Quickly Generating Billion-Record
+ * Synthetic Databases". Generators are immutable and safe to share between threads.
+ */
+final class ZipfianGenerator
+{
+    private final long _itemCount;
+    private final double _theta;
+    private final double _zetaN;
+    private final double _alpha;
+    private final double _eta;
+
+    ZipfianGenerator(long itemCount, double theta)
+    {
+        if (itemCount <= 0) {
+            throw new IllegalArgumentException("itemCount must be positive");
+        }
+
+        if (theta < 0 || theta >= 1) {
+            throw new IllegalArgumentException("theta must be in [0, 1)");
+        }
+
+        _itemCount = itemCount;
+        _theta = theta;
+        _zetaN = zeta(itemCount, theta);
+        _alpha = 1.0 / (1.0 - theta);
+        _eta = (1 - Math.pow(2.0 / itemCount, 1 - theta)) / (1 - zeta(2, theta) / _zetaN);
+    }
+
+    private static double zeta(long n, double theta)
+    {
+        double sum = 0;
+
+        for (long i = 1; i <= n; ++i) {
+            sum += 1 / Math.pow(i, theta);
+        }
+
+        return sum;
+    }
+
+    long next()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (_theta == 0) {
+            return random.nextLong(_itemCount);
+        }
+
+        double u = random.nextDouble();
+        double uz = u * _zetaN;
+
+        if (uz < 1) {
+            return 0;
+        }
+
+        if (uz < 1 + Math.pow(0.5, _theta)) {
+            return 1;
+        }
+
+        long item = (long) (_itemCount * Math.pow(_eta * u - _eta + 1, _alpha));
+
+        return Math.min(item, _itemCount - 1);
+    }
+}
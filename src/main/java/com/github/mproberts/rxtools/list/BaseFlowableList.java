@@ -5,14 +5,17 @@ import io.reactivex.Flowable;
 import io.reactivex.ObservableSource;
 import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.exceptions.Exceptions;
 import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
+import io.reactivex.plugins.RxJavaPlugins;
 import io.reactivex.subjects.PublishSubject;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 class BaseFlowableList<T> extends FlowableList<T>
@@ -21,18 +24,11 @@ class BaseFlowableList<T> extends FlowableList<T>
 
     private final PublishSubject<Update<T>> _subject = PublishSubject.create();
 
-    private final AtomicLong _nowServing = new AtomicLong();
-    private final AtomicLong _nextTicket = new AtomicLong();
+    // pending updates, applied in order by whichever thread is draining the queue
+    private final Queue<Action> _pendingActions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _pendingCount = new AtomicInteger();
     private final AtomicLong _attachmentCount = new AtomicLong();
 
-    private final ThreadLocal<Boolean> _isApplyingUpdate = new ThreadLocal<Boolean>() {
-        @Override
-        protected Boolean initialValue()
-        {
-            return Boolean.FALSE;
-        }
-    };
-
     BaseFlowableList()
     {
         _previousList = null;
@@ -40,7 +36,20 @@ class BaseFlowableList<T> extends FlowableList<T>
 
     BaseFlowableList(List<T> initialState)
     {
-        _previousList = initialState;
+        _previousList = snapshot(initialState);
+    }
+
+    /**
+     * The current state is shared with every new subscriber, so it is only ever held as an
+     * immutable list. Persistent lists are kept as they are, any other list is copied once
+     */
+    private static <T> List<T> snapshot(List<T> list)
+    {
+        if (list == null || list instanceof PersistentList) {
+            return list;
+        }
+
+        return PersistentList.copyOf(list);
     }
 
     /**
@@ -52,11 +61,21 @@ class BaseFlowableList<T> extends FlowableList<T>
     {
         List<T> oldPreviousList = _previousList;
 
-        _previousList = previousList;
+        _previousList = snapshot(previousList);
 
         return oldPreviousList;
     }
 
+    /**
+     * Updates applied while the list is not observed do not need to describe their changes,
+     * each new subscriber is sent the current state of the list as a reload
+     * @return true if the list has subscribers, only accurate while an update is being applied
+     */
+    final boolean isObserved()
+    {
+        return _attachmentCount.get() > 0;
+    }
+
     final void applyUpdate(final Function<List<T>, Update<T>> change)
     {
         onNext(new Action() {
@@ -76,7 +95,7 @@ class BaseFlowableList<T> extends FlowableList<T>
                             update = new Update<>(update.list, Change.reloaded());
                         }
 
-                        _previousList = update.list;
+                        _previousList = snapshot(update.list);
                     }
                 }
                 catch (Exception e) {
@@ -93,33 +112,49 @@ class BaseFlowableList<T> extends FlowableList<T>
         });
     }
 
+    /**
+     * Applies the action once every action queued before it has been applied. If this thread
+     * drains the queue, an exception thrown by its own action is rethrown once the queue is
+     * empty, exceptions thrown by actions queued from other threads, whose callers have already
+     * returned, are sent to {@link RxJavaPlugins#onError(Throwable)}
+     */
     private void onNext(Action doNotify)
     {
-        boolean applyingUpdate = _isApplyingUpdate.get();
+        _pendingActions.offer(doNotify);
 
-        _isApplyingUpdate.set(true);
+        if (_pendingCount.getAndIncrement() != 0) {
+            // another thread is draining and will apply the action in turn, including this
+            // thread if the action was queued from within an update
+            return;
+        }
 
-        if (!applyingUpdate) {
-            long ticket = _nextTicket.getAndIncrement();
+        int missed = 1;
+        Throwable error = null;
 
-            // ensure ordered
-            while (_nowServing.get() != ticket) {
-                Thread.yield();
-            }
-        }
+        do {
+            Action action;
 
-        try {
-            doNotify.run();
-        }
-        catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+            while ((action = _pendingActions.poll()) != null) {
+                try {
+                    action.run();
+                }
+                catch (Throwable e) {
+                    Exceptions.throwIfFatal(e);
+
+                    if (action == doNotify) {
+                        error = e;
+                    }
+                    else {
+                        RxJavaPlugins.onError(e);
+                    }
+                }
+            }
 
-        if (!applyingUpdate) {
-            // allow the next update to take hold
-            _nowServing.incrementAndGet();
+            missed = _pendingCount.addAndGet(-missed);
+        } while (missed != 0);
 
-            _isApplyingUpdate.set(false);
+        if (error != null) {
+            throw Exceptions.propagate(error);
         }
     }
 
@@ -136,7 +171,8 @@ class BaseFlowableList<T> extends FlowableList<T>
     @Override
     public Flowable<Update<T>> updates()
     {
-        // starts the observable with whatever the present state is
+        // starts the observable with whatever the present state is, updates which a subscriber
+        // is not ready for are conflated rather than buffered
         return _subject
                 .startWith(new ObservableSource<Update<T>>() {
                     @Override
@@ -146,9 +182,7 @@ class BaseFlowableList<T> extends FlowableList<T>
                             public void run()
                             {
                                 if (_previousList != null) {
-                                    observer.onNext(
-                                            new Update<>(new ArrayList<>(_previousList),
-                                                    Collections.singletonList(Change.reloaded())));
+                                    observer.onNext(new Update<>(_previousList, Change.reloaded()));
                                 }
 
                                 observer.onComplete();
@@ -177,6 +211,7 @@ class BaseFlowableList<T> extends FlowableList<T>
                         }
                     }
                 })
-                .toFlowable(BackpressureStrategy.BUFFER);
+                .toFlowable(BackpressureStrategy.MISSING)
+                .lift(new ConflatingUpdateOperator<T>());
     }
 }
@@ -5,8 +5,6 @@ import io.reactivex.Scheduler;
 import io.reactivex.functions.Function;
 import org.reactivestreams.Publisher;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -38,21 +36,26 @@ class BufferedFlowableList<T> extends FlowableList<T>
                         }
 
                         Update<T> lastUpdate = updates.get(updates.size() - 1);
-                        List<Change> allChanges = new ArrayList<>();
+                        ChangeSet.Builder allChanges = new ChangeSet.Builder();
 
                         for (Update<T> update : updates) {
-                            allChanges.addAll(update.changes);
-                        }
+                            ChangeSet changes = update.changeSet();
 
-                        for (Change allChange : allChanges) {
                             // it only takes one reload to force a reload
-                            if (allChange.type == Change.Type.Reloaded) {
-                                allChanges = Collections.singletonList(Change.reloaded());
-                                break;
+                            if (changes.containsReload()) {
+                                return Flowable.just(new Update<>(lastUpdate.list, Change.reloaded()));
                             }
+
+                            allChanges.addAll(changes);
+                        }
+
+                        ChangeSet normalizedChanges = ChangeNormalizer.normalize(allChanges.build(), lastUpdate.list.size());
+
+                        if (normalizedChanges.isEmpty()) {
+                            return Flowable.empty();
                         }
 
-                        return Flowable.just(new Update<>(lastUpdate.list, allChanges));
+                        return Flowable.just(new Update<>(lastUpdate.list, normalizedChanges));
                     }
                 });
     }
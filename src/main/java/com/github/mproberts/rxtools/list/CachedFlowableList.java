@@ -37,50 +37,37 @@ class CachedFlowableList<V> extends FlowableList<V>
         _strongCacheSize = strongCacheSize;
     }
 
-    private <T> Map<Integer, T> remapCache(Map<Integer, T> priorCache, List<Change> changes, int size)
+    private <T> Map<Integer, T> remapCache(Map<Integer, T> priorCache, ChangeSet changes, int size)
     {
         Map<Integer, T> updatedCache = new SizeLimitedMap<>(size);
 
+        if (changes.containsReload()) {
+            // give up and return
+            return updatedCache;
+        }
+
+        ChangeSet.Cursor cursor = changes.cursor();
+
         for (Map.Entry<Integer, T> cacheEntry : priorCache.entrySet()) {
             int index = cacheEntry.getKey();
-            T value = cacheEntry.getValue();
-
-            for (Change change : changes) {
-                switch (change.type) {
-                    case Removed:
-                        if (change.from < index) {
-                            --index;
-                        }
-                        else if (change.from == index) {
-                            // skip the entry
-                            continue;
-                        }
-                        break;
-                    case Moved:
-                        if (change.from > index && change.to <= index) {
-                            ++index;
-                        }
-                        else if (change.from < index && change.to > index) {
-                            --index;
-                        }
-                        else if (change.from == index) {
-                            index = change.to;
-                        }
-                        break;
-                    case Inserted:
-                        if (change.to <= index) {
-                            ++index;
-                        }
-                        break;
-                    case Reloaded:
-                        // give up and return
-                        updatedCache.clear();
-
-                        return updatedCache;
+
+            cursor.reset();
+
+            while (index >= 0 && cursor.next()) {
+                if (cursor.type() == Change.Type.Changed
+                        && index >= cursor.from()
+                        && index < cursor.from() + cursor.count()) {
+                    // the value was replaced in place, only its entry is stale
+                    index = -1;
+                }
+                else {
+                    index = cursor.remap(index);
                 }
             }
 
-            updatedCache.put(index, value);
+            if (index >= 0) {
+                updatedCache.put(index, cacheEntry.getValue());
+            }
         }
 
         return updatedCache;
@@ -101,11 +88,11 @@ class CachedFlowableList<V> extends FlowableList<V>
                 Map<Integer, V> strongCache = _strongCache;
 
                 synchronized (weakCache) {
-                    weakCache = remapCache(weakCache, update.changes, _weakCacheSize);
+                    weakCache = remapCache(weakCache, update.changeSet(), _weakCacheSize);
                 }
 
                 synchronized (strongCache) {
-                    strongCache = remapCache(strongCache, update.changes, _strongCacheSize);
+                    strongCache = remapCache(strongCache, update.changeSet(), _strongCacheSize);
                 }
 
                 _weakCache = weakCache;
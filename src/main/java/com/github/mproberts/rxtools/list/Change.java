@@ -1,7 +1,9 @@
 package com.github.mproberts.rxtools.list;
 
 /**
- * A change is a single modification to a list which transforms it from one state to the next
+ * A change is a single modification to a list which transforms it from one state to the next.
+ * Insertions, removals, moves and in place changes apply to a contiguous range of count values,
+ * starting at the from and to locations
  */
 public class Change
 {
@@ -13,7 +15,8 @@ public class Change
         Moved(0),
         Inserted(1),
         Removed(2),
-        Reloaded(3);
+        Reloaded(3),
+        Changed(4);
 
         final int value;
 
@@ -26,6 +29,12 @@ public class Change
     public final Type type;
     public final int from;
     public final int to;
+    public final int count;
+
+    /**
+     * Describes what changed about the values of a Changed change, or null if unspecified
+     */
+    public final Object payload;
 
     /**
      *
@@ -35,7 +44,19 @@ public class Change
      */
     public static Change moved(int from, int to)
     {
-        return new Change(Type.Moved, from, to);
+        return moved(from, to, 1);
+    }
+
+    /**
+     *
+     * @param from Location of the first value of the range in the source list
+     * @param to Location of the first value of the range in the destination list
+     * @param count The number of values moved
+     * @return A change representing the move of the range
+     */
+    public static Change moved(int from, int to, int count)
+    {
+        return new Change(Type.Moved, from, to, count);
     }
 
     /**
@@ -45,7 +66,18 @@ public class Change
      */
     public static Change inserted(int to)
     {
-        return new Change(Type.Inserted, to, to);
+        return inserted(to, 1);
+    }
+
+    /**
+     *
+     * @param to Location of the first inserted value in the destination list
+     * @param count The number of values inserted
+     * @return A change representing the insertion of the range
+     */
+    public static Change inserted(int to, int count)
+    {
+        return new Change(Type.Inserted, to, to, count);
     }
 
     /**
@@ -55,7 +87,52 @@ public class Change
      */
     public static Change removed(int from)
     {
-        return new Change(Type.Removed, from, from);
+        return removed(from, 1);
+    }
+
+    /**
+     *
+     * @param from Location of the first removed value in the source list
+     * @param count The number of values removed
+     * @return A change representing the removal of the range
+     */
+    public static Change removed(int from, int count)
+    {
+        return new Change(Type.Removed, from, from, count);
+    }
+
+    /**
+     *
+     * @param index Location of the changed value
+     * @return A change representing an update to the value in place
+     */
+    public static Change changed(int index)
+    {
+        return changed(index, 1);
+    }
+
+    /**
+     *
+     * @param index Location of the first changed value
+     * @param count The number of values changed
+     * @return A change representing an update to the range of values in place
+     */
+    public static Change changed(int index, int count)
+    {
+        return changed(index, count, null);
+    }
+
+    /**
+     *
+     * @param index Location of the first changed value
+     * @param count The number of values changed
+     * @param payload Describes what changed about the values, allowing consumers to apply
+     *                the update partially
+     * @return A change representing an update to the range of values in place
+     */
+    public static Change changed(int index, int count, Object payload)
+    {
+        return new Change(Type.Changed, index, index, count, payload);
     }
 
     /**
@@ -64,26 +141,89 @@ public class Change
      */
     public static Change reloaded()
     {
-        return new Change(Type.Reloaded, Integer.MIN_VALUE, Integer.MIN_VALUE);
+        return new Change(Type.Reloaded, Integer.MIN_VALUE, Integer.MIN_VALUE, 0);
     }
 
     Change(Type type, int from, int to)
     {
+        this(type, from, to, 1);
+    }
+
+    Change(Type type, int from, int to, int count)
+    {
+        this(type, from, to, count, null);
+    }
+
+    Change(Type type, int from, int to, int count, Object payload)
+    {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative count: " + count);
+        }
+
         this.type = type;
         this.from = from;
         this.to = to;
+        this.count = count;
+        this.payload = payload;
+    }
+
+    /**
+     * Returns the location of a value after this change has been applied
+     * @param index The location of the value before the change
+     * @return The location of the value after the change, or -1 if the change removes it
+     */
+    int remap(int index)
+    {
+        return remap(type, from, to, count, index);
+    }
+
+    static int remap(Type type, int from, int to, int count, int index)
+    {
+        switch (type) {
+            case Changed:
+                return index;
+            case Inserted:
+                return index >= to ? index + count : index;
+            case Removed:
+                if (index < from) {
+                    return index;
+                }
+
+                return index >= from + count ? index - count : -1;
+            case Moved:
+                if (index >= from && index < from + count) {
+                    return to + index - from;
+                }
+
+                if (index >= from + count) {
+                    index -= count;
+                }
+
+                return index >= to ? index + count : index;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean equal(Object a, Object b)
+    {
+        return a == b || (a != null && a.equals(b));
     }
 
     @Override
     public String toString()
     {
+        String range = count == 1 ? "" : ", " + count;
+
         switch (type) {
             case Moved:
-                return "moved(" + from + " -> " + to + ")";
+                return "moved(" + from + " -> " + to + range + ")";
             case Inserted:
-                return "inserted(" + to + ")";
+                return "inserted(" + to + range + ")";
             case Removed:
-                return "removed(" + from + ")";
+                return "removed(" + from + range + ")";
+            case Changed:
+                return "changed(" + from + range + ")";
             default:
                 return "reloaded";
         }
@@ -100,12 +240,14 @@ public class Change
 
         return other.type == type
                 && other.from == from
-                && other.to == to;
+                && other.to == to
+                && other.count == count
+                && equal(other.payload, payload);
     }
 
     @Override
     public int hashCode()
     {
-        return (type.value << 3) | (from) | (to << 16);
+        return (type.value << 3) | (from) | (to << 16) | (count << 24);
     }
 }
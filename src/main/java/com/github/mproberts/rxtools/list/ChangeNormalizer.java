@@ -0,0 +1,190 @@
+package com.github.mproberts.rxtools.list;
+
+import java.util.Arrays;
+
+/**
+ * Reduces a sequence of changes to a shorter sequence with the same effect. Each change is
+ * combined with the change before it where possible: adjacent insertions, removals and in place
+ * changes are merged into ranges, values inserted and then removed cancel out and a range moved
+ * and then moved again becomes a single move. When the remaining changes would cost more to
+ * apply than reloading the list, they are replaced with a single reload.
+ */
+final class ChangeNormalizer
+{
+    /**
+     * The number of changes which is always considered cheaper than a reload
+     */
+    static final int MINIMUM_RELOAD_THRESHOLD = 8;
+
+    private static final int TYPE = 0;
+    private static final int FROM = 1;
+    private static final int TO = 2;
+    private static final int COUNT = 3;
+    private static final int STRIDE = 4;
+
+    private static final Change.Type[] TYPES = Change.Type.values();
+
+    private int[] _data = new int[8 * STRIDE];
+    private Object[] _payloads = new Object[8];
+    private int _size;
+
+    private ChangeNormalizer()
+    {
+    }
+
+    /**
+     * @param changes The changes to normalize, in the order they were applied
+     * @param listSize The size of the list once the changes have been applied
+     * @return The normalized changes
+     */
+    static ChangeSet normalize(ChangeSet changes, int listSize)
+    {
+        if (changes.containsReload()) {
+            return ChangeSet.of(Change.reloaded());
+        }
+
+        ChangeNormalizer normalizer = new ChangeNormalizer();
+        ChangeSet.Cursor cursor = changes.cursor();
+
+        while (cursor.next()) {
+            normalizer.push(cursor.type().value, cursor.from(), cursor.to(), cursor.count(), cursor.payload());
+        }
+
+        int size = normalizer._size;
+
+        if (size > MINIMUM_RELOAD_THRESHOLD && size > listSize / 2) {
+            return ChangeSet.of(Change.reloaded());
+        }
+
+        ChangeSet.Builder builder = new ChangeSet.Builder(size);
+
+        for (int i = 0; i < size; ++i) {
+            int base = i * STRIDE;
+
+            builder.append(
+                    TYPES[normalizer._data[base + TYPE]],
+                    normalizer._data[base + FROM],
+                    normalizer._data[base + TO],
+                    normalizer._data[base + COUNT],
+                    normalizer._payloads[i]);
+        }
+
+        return builder.build();
+    }
+
+    private void push(int type, int from, int to, int count, Object payload)
+    {
+        if (count == 0 || (type == Change.Type.Moved.value && from == to)) {
+            return;
+        }
+
+        while (_size > 0) {
+            int last = (_size - 1) * STRIDE;
+            int lastType = _data[last + TYPE];
+            int lastFrom = _data[last + FROM];
+            int lastTo = _data[last + TO];
+            int lastCount = _data[last + COUNT];
+
+            if (type == Change.Type.Inserted.value) {
+                if (lastType == type && to >= lastTo && to <= lastTo + lastCount) {
+                    _data[last + COUNT] += count;
+                    return;
+                }
+            }
+            else if (type == Change.Type.Removed.value) {
+                if (lastType == type && (from == lastFrom || from + count == lastFrom)) {
+                    _data[last + FROM] = from;
+                    _data[last + TO] = from;
+                    _data[last + COUNT] += count;
+                    return;
+                }
+
+                if (lastType == Change.Type.Inserted.value) {
+                    if (from >= lastTo && from + count <= lastTo + lastCount) {
+                        // only inserted values are removed
+                        _data[last + COUNT] -= count;
+
+                        if (_data[last + COUNT] == 0) {
+                            pop();
+                        }
+
+                        return;
+                    }
+
+                    if (lastTo >= from && lastTo + lastCount <= from + count) {
+                        // all of the inserted values are removed, along with others
+                        pop();
+                        count -= lastCount;
+                        continue;
+                    }
+                }
+
+                if (lastType == Change.Type.Changed.value && lastFrom >= from && lastFrom + lastCount <= from + count) {
+                    // the changed values are removed
+                    pop();
+                    continue;
+                }
+            }
+            else if (type == Change.Type.Changed.value) {
+                if (lastType == Change.Type.Inserted.value && from >= lastTo && from + count <= lastTo + lastCount) {
+                    // inserted values are already new
+                    return;
+                }
+
+                if (lastType == type
+                        && from <= lastFrom + lastCount
+                        && lastFrom <= from + count
+                        && (payload == null ? _payloads[_size - 1] == null : payload.equals(_payloads[_size - 1]))) {
+                    int start = Math.min(from, lastFrom);
+                    int end = Math.max(from + count, lastFrom + lastCount);
+
+                    _data[last + FROM] = start;
+                    _data[last + TO] = start;
+                    _data[last + COUNT] = end - start;
+                    return;
+                }
+            }
+            else if (type == Change.Type.Moved.value) {
+                if (lastType == type && lastCount == count && lastTo == from) {
+                    // a chain of moves of the same range
+                    pop();
+
+                    if (lastFrom == to) {
+                        return;
+                    }
+
+                    from = lastFrom;
+                    continue;
+                }
+            }
+
+            break;
+        }
+
+        add(type, from, to, count, payload);
+    }
+
+    private void pop()
+    {
+        --_size;
+        _payloads[_size] = null;
+    }
+
+    private void add(int type, int from, int to, int count, Object payload)
+    {
+        if ((_size + 1) * STRIDE > _data.length) {
+            _data = Arrays.copyOf(_data, _data.length * 2);
+            _payloads = Arrays.copyOf(_payloads, _payloads.length * 2);
+        }
+
+        int base = _size * STRIDE;
+
+        _data[base + TYPE] = type;
+        _data[base + FROM] = from;
+        _data[base + TO] = to;
+        _data[base + COUNT] = count;
+        _payloads[_size] = payload;
+
+        ++_size;
+    }
+}
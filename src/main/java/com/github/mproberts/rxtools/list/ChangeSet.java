@@ -0,0 +1,429 @@
+package com.github.mproberts.rxtools.list;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact, immutable sequence of changes. Each change is packed into a shared int array
+ * rather than allocated as an object, changes are read in place through a {@link Cursor}
+ * and {@link #offset(int) offset} views share the array of the set they are derived from.
+ * <p>
+ * A change set is also a {@code List<Change>}, Change objects are only created, and then
+ * retained, when the set is accessed as a list.
+ */
+public final class ChangeSet extends AbstractList<Change>
+{
+    private static final int TYPE = 0;
+    private static final int FROM = 1;
+    private static final int TO = 2;
+    private static final int COUNT = 3;
+    private static final int STRIDE = 4;
+
+    private static final Change.Type[] TYPES = Change.Type.values();
+
+    private static final ChangeSet EMPTY = new ChangeSet(new int[0], null, 0, 0);
+
+    private final int[] _data;
+    private final Object[] _payloads;
+    private final int _size;
+    private final int _offset;
+    private volatile Change[] _materialized;
+
+    private ChangeSet(int[] data, Object[] payloads, int size, int offset)
+    {
+        _data = data;
+        _payloads = payloads;
+        _size = size;
+        _offset = offset;
+    }
+
+    /**
+     * @return A change set containing no changes
+     */
+    public static ChangeSet empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * @param change The change
+     * @return A change set containing only the change
+     */
+    public static ChangeSet of(Change change)
+    {
+        ChangeSet changeSet = new Builder(1).add(change).build();
+
+        changeSet._materialized = new Change[] { change };
+
+        return changeSet;
+    }
+
+    /**
+     * @param changes The changes to copy
+     * @return A change set containing the changes, or the list itself if it is already a
+     * change set
+     */
+    public static ChangeSet copyOf(List<Change> changes)
+    {
+        if (changes instanceof ChangeSet) {
+            return (ChangeSet) changes;
+        }
+
+        if (changes.isEmpty()) {
+            return EMPTY;
+        }
+
+        Builder builder = new Builder(changes.size());
+
+        for (Change change : changes) {
+            builder.add(change);
+        }
+
+        ChangeSet changeSet = builder.build();
+
+        changeSet._materialized = changes.toArray(new Change[changes.size()]);
+
+        return changeSet;
+    }
+
+    /**
+     * Returns a view of this change set as applied to a list in which the changed list is
+     * preceded by offset values. The view shares the storage of this change set
+     * @param offset The distance to shift the changes by
+     * @return The shifted view
+     */
+    public ChangeSet offset(int offset)
+    {
+        if (offset == 0 || _size == 0) {
+            return this;
+        }
+
+        return new ChangeSet(_data, _payloads, _size, _offset + offset);
+    }
+
+    /**
+     * @return true if any of the changes is a reload
+     */
+    public boolean containsReload()
+    {
+        for (int i = 0; i < _size; ++i) {
+            if (_data[i * STRIDE + TYPE] == Change.Type.Reloaded.value) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return A new cursor positioned before the first change
+     */
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
+
+    @Override
+    public int size()
+    {
+        return _size;
+    }
+
+    @Override
+    public Change get(int index)
+    {
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+
+        Change[] materialized = _materialized;
+
+        if (materialized == null) {
+            materialized = new Change[_size];
+            _materialized = materialized;
+        }
+
+        Change change = materialized[index];
+
+        if (change == null) {
+            change = materialize(index);
+            materialized[index] = change;
+        }
+
+        return change;
+    }
+
+    private Change materialize(int index)
+    {
+        int base = index * STRIDE;
+        Change.Type type = TYPES[_data[base + TYPE]];
+
+        if (type == Change.Type.Reloaded) {
+            return Change.reloaded();
+        }
+
+        return new Change(
+                type,
+                _data[base + FROM] + _offset,
+                _data[base + TO] + _offset,
+                _data[base + COUNT],
+                _payloads == null ? null : _payloads[index]);
+    }
+
+    /**
+     * Reads the changes of a change set in place, without allocation. The accessors describe
+     * the change the cursor is positioned on
+     */
+    public final class Cursor
+    {
+        private int _index = -1;
+        private int _base = -STRIDE;
+
+        private Cursor()
+        {
+        }
+
+        /**
+         * Advances to the next change
+         * @return true if the cursor is positioned on a change, false if there are no more
+         */
+        public boolean next()
+        {
+            if (_index + 1 >= _size) {
+                _index = _size;
+                return false;
+            }
+
+            ++_index;
+            _base += STRIDE;
+
+            return true;
+        }
+
+        /**
+         * Repositions the cursor before the first change
+         */
+        public void reset()
+        {
+            _index = -1;
+            _base = -STRIDE;
+        }
+
+        public Change.Type type()
+        {
+            return TYPES[_data[_base + TYPE]];
+        }
+
+        public int from()
+        {
+            return isReload() ? Integer.MIN_VALUE : _data[_base + FROM] + _offset;
+        }
+
+        public int to()
+        {
+            return isReload() ? Integer.MIN_VALUE : _data[_base + TO] + _offset;
+        }
+
+        public int count()
+        {
+            return _data[_base + COUNT];
+        }
+
+        public Object payload()
+        {
+            return _payloads == null ? null : _payloads[_index];
+        }
+
+        /**
+         * @see Change#remap(int)
+         */
+        int remap(int index)
+        {
+            return Change.remap(type(), from(), to(), count(), index);
+        }
+
+        private boolean isReload()
+        {
+            return _data[_base + TYPE] == Change.Type.Reloaded.value;
+        }
+    }
+
+    /**
+     * Accumulates changes into a new change set. A builder must not be used once it has built
+     * its change set
+     */
+    static final class Builder
+    {
+        private int[] _data;
+        private Object[] _payloads;
+        private int _size;
+
+        Builder()
+        {
+            this(4);
+        }
+
+        Builder(int capacity)
+        {
+            _data = new int[Math.max(1, capacity) * STRIDE];
+        }
+
+        int size()
+        {
+            return _size;
+        }
+
+        /**
+         * Adds the change to the end of the set
+         */
+        Builder add(Change change)
+        {
+            add(change.type, change.from, change.to, change.count, change.payload);
+
+            return this;
+        }
+
+        /**
+         * Adds the changes to the end of the set, as they are
+         */
+        Builder addAll(ChangeSet changes)
+        {
+            ensureCapacity(_size + changes._size);
+
+            int length = changes._size * STRIDE;
+
+            System.arraycopy(changes._data, 0, _data, _size * STRIDE, length);
+
+            if (changes._offset != 0) {
+                for (int base = _size * STRIDE, end = base + length; base < end; base += STRIDE) {
+                    if (_data[base + TYPE] != Change.Type.Reloaded.value) {
+                        _data[base + FROM] += changes._offset;
+                        _data[base + TO] += changes._offset;
+                    }
+                }
+            }
+
+            if (changes._payloads != null) {
+                ensurePayloads();
+                System.arraycopy(changes._payloads, 0, _payloads, _size, changes._size);
+            }
+
+            _size += changes._size;
+
+            return this;
+        }
+
+        /**
+         * Adds the change to the end of the set, merging it into the last change when the two
+         * insert, remove or change a single contiguous range
+         */
+        Builder append(Change change)
+        {
+            append(change.type, change.from, change.to, change.count, change.payload);
+
+            return this;
+        }
+
+        void append(Change.Type type, int from, int to, int count, Object payload)
+        {
+            if (_size > 0) {
+                int last = (_size - 1) * STRIDE;
+                int lastType = _data[last + TYPE];
+                int lastFrom = _data[last + FROM];
+                int lastTo = _data[last + TO];
+                int lastCount = _data[last + COUNT];
+
+                if (lastType == type.value) {
+                    switch (type) {
+                        case Inserted:
+                            if (to >= lastTo && to <= lastTo + lastCount) {
+                                _data[last + COUNT] = lastCount + count;
+                                return;
+                            }
+                            break;
+                        case Removed:
+                            if (from == lastFrom || from + count == lastFrom) {
+                                _data[last + FROM] = from;
+                                _data[last + TO] = from;
+                                _data[last + COUNT] = lastCount + count;
+                                return;
+                            }
+                            break;
+                        case Changed:
+                            Object lastPayload = _payloads == null ? null : _payloads[_size - 1];
+
+                            if (from <= lastFrom + lastCount
+                                    && lastFrom <= from + count
+                                    && (payload == null ? lastPayload == null : payload.equals(lastPayload))) {
+                                int start = Math.min(from, lastFrom);
+                                int end = Math.max(from + count, lastFrom + lastCount);
+
+                                _data[last + FROM] = start;
+                                _data[last + TO] = start;
+                                _data[last + COUNT] = end - start;
+                                return;
+                            }
+                            break;
+                    }
+                }
+            }
+
+            add(type, from, to, count, payload);
+        }
+
+        private void add(Change.Type type, int from, int to, int count, Object payload)
+        {
+            ensureCapacity(_size + 1);
+
+            int base = _size * STRIDE;
+
+            _data[base + TYPE] = type.value;
+            _data[base + FROM] = from;
+            _data[base + TO] = to;
+            _data[base + COUNT] = count;
+
+            if (payload != null) {
+                ensurePayloads();
+            }
+
+            if (_payloads != null) {
+                _payloads[_size] = payload;
+            }
+
+            ++_size;
+        }
+
+        private void ensureCapacity(int size)
+        {
+            if (size * STRIDE > _data.length) {
+                _data = Arrays.copyOf(_data, Math.max(size, _size * 2) * STRIDE);
+
+                if (_payloads != null) {
+                    _payloads = Arrays.copyOf(_payloads, _data.length / STRIDE);
+                }
+            }
+        }
+
+        private void ensurePayloads()
+        {
+            if (_payloads == null) {
+                _payloads = new Object[_data.length / STRIDE];
+            }
+        }
+
+        ChangeSet build()
+        {
+            if (_size == 0) {
+                return EMPTY;
+            }
+
+            ChangeSet changeSet = new ChangeSet(_data, _payloads, _size, 0);
+
+            _data = null;
+            _payloads = null;
+
+            return changeSet;
+        }
+    }
+}
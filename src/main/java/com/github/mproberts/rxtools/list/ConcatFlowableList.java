@@ -4,7 +4,6 @@ import io.reactivex.*;
 import io.reactivex.functions.Function;
 import org.reactivestreams.Publisher;
 
-import java.util.ArrayList;
 import java.util.List;
 
 class ConcatFlowableList extends FlowableList
@@ -54,7 +53,8 @@ class ConcatFlowableList extends FlowableList
                             int offset = 0;
                             boolean reloaded = false;
                             List[] allLists = new List[positionedUpdates.length];
-                            List<Change> changes = new ArrayList<>();
+                            ChangeSet changes = ChangeSet.empty();
+                            ChangeSet.Builder builder = null;
 
                             for (int i = 0; i < positionedUpdates.length; ++i) {
                                 PositionedUpdate positionedUpdate = (PositionedUpdate) positionedUpdates[i];
@@ -64,25 +64,24 @@ class ConcatFlowableList extends FlowableList
                                 if (!positionedUpdate.seen) {
                                     positionedUpdate.seen = true;
 
-                                    if (!reloaded) {
-                                        for (Change change : (List<Change>) positionedUpdate.update.changes) {
-                                            if (change.type == Change.Type.Reloaded) {
-                                                reloaded = true;
-                                                break;
-                                            }
-
-                                            switch (change.type) {
-                                                case Inserted:
-                                                    changes.add(Change.inserted(change.to + offset));
-                                                    break;
-                                                case Removed:
-                                                    changes.add(Change.removed(change.from + offset));
-                                                    break;
-                                                case Moved:
-                                                    changes.add(Change.moved(change.from + offset, change.to + offset));
-                                                    break;
-                                            }
+                                    ChangeSet updateChanges = positionedUpdate.update.changeSet();
+
+                                    if (reloaded || updateChanges.isEmpty()) {
+                                        // nothing to add
+                                    }
+                                    else if (updateChanges.containsReload()) {
+                                        reloaded = true;
+                                    }
+                                    else if (changes.isEmpty()) {
+                                        // a single changed list is passed along as a view
+                                        changes = updateChanges.offset(offset);
+                                    }
+                                    else {
+                                        if (builder == null) {
+                                            builder = new ChangeSet.Builder().addAll(changes);
                                         }
+
+                                        builder.addAll(updateChanges.offset(offset));
                                     }
                                 }
 
@@ -90,8 +89,10 @@ class ConcatFlowableList extends FlowableList
                             }
 
                             if (reloaded) {
-                                changes.clear();
-                                changes.add(Change.reloaded());
+                                changes = ChangeSet.of(Change.reloaded());
+                            }
+                            else if (builder != null) {
+                                changes = builder.build();
                             }
 
                             return new Update(new ConcatList(allLists), changes);
@@ -0,0 +1,188 @@
+package com.github.mproberts.rxtools.list;
+
+import io.reactivex.FlowableOperator;
+import io.reactivex.plugins.RxJavaPlugins;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Applies backpressure to list updates by conflating them rather than buffering them. Updates
+ * which arrive while the subscriber has no outstanding requests are merged into a single pending
+ * update holding the latest list and the normalized changes of every merged update, so at most
+ * one update is held for each subscriber no matter how far it falls behind.
+ * @param <T> The value type of the list
+ */
+final class ConflatingUpdateOperator<T> implements FlowableOperator<Update<T>, Update<T>>
+{
+    @Override
+    public Subscriber<? super Update<T>> apply(Subscriber<? super Update<T>> subscriber)
+    {
+        return new ConflatingSubscriber<>(subscriber);
+    }
+
+    /**
+     * @param previous The earlier update
+     * @param next The later update
+     * @return A single update with the effect of both, or null if their changes cancel out
+     */
+    static <T> Update<T> merge(Update<T> previous, Update<T> next)
+    {
+        ChangeSet changes = new ChangeSet.Builder(previous.changes.size() + next.changes.size())
+                .addAll(previous.changeSet())
+                .addAll(next.changeSet())
+                .build();
+
+        changes = ChangeNormalizer.normalize(changes, next.list.size());
+
+        if (changes.isEmpty()) {
+            return null;
+        }
+
+        return new Update<>(next.list, changes);
+    }
+
+    private static final class ConflatingSubscriber<T> implements Subscriber<Update<T>>, Subscription
+    {
+        private final Subscriber<? super Update<T>> _downstream;
+        private final AtomicReference<Update<T>> _pending = new AtomicReference<>();
+        private final AtomicLong _requested = new AtomicLong();
+        private final AtomicInteger _wip = new AtomicInteger();
+
+        private Subscription _upstream;
+        private Throwable _error;
+        private volatile boolean _done;
+        private volatile boolean _cancelled;
+
+        ConflatingSubscriber(Subscriber<? super Update<T>> downstream)
+        {
+            _downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription)
+        {
+            _upstream = subscription;
+
+            _downstream.onSubscribe(this);
+
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Update<T> update)
+        {
+            for (;;) {
+                Update<T> previous = _pending.get();
+                Update<T> merged = previous == null ? update : merge(previous, update);
+
+                if (_pending.compareAndSet(previous, merged)) {
+                    break;
+                }
+            }
+
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            _error = throwable;
+            _done = true;
+
+            drain();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            _done = true;
+
+            drain();
+        }
+
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0) {
+                RxJavaPlugins.onError(new IllegalArgumentException("n > 0 required but it was " + n));
+                return;
+            }
+
+            for (;;) {
+                long requested = _requested.get();
+
+                if (requested == Long.MAX_VALUE) {
+                    break;
+                }
+
+                long updated = requested + n;
+
+                if (updated < 0) {
+                    updated = Long.MAX_VALUE;
+                }
+
+                if (_requested.compareAndSet(requested, updated)) {
+                    break;
+                }
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            _cancelled = true;
+            _upstream.cancel();
+
+            drain();
+        }
+
+        private void drain()
+        {
+            if (_wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+
+            do {
+                for (;;) {
+                    if (_cancelled) {
+                        _pending.set(null);
+                        return;
+                    }
+
+                    // read before the pending update, all updates precede completion
+                    boolean done = _done;
+                    Update<T> update = _requested.get() != 0 ? _pending.getAndSet(null) : null;
+
+                    if (update == null) {
+                        if (done && _pending.get() == null) {
+                            if (_error != null) {
+                                _downstream.onError(_error);
+                            }
+                            else {
+                                _downstream.onComplete();
+                            }
+                            return;
+                        }
+                        break;
+                    }
+
+                    _downstream.onNext(update);
+
+                    if (_requested.get() != Long.MAX_VALUE) {
+                        _requested.decrementAndGet();
+                    }
+                }
+
+                missed = _wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.mproberts.rxtools.list;
 
+import io.reactivex.functions.Function;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -34,14 +36,31 @@ public class Diff
     };
 
     public static <T> List<Change> calculateDiff(final List<T> original, final List<T> updated, boolean detectMoves) {
+        return calculateDiff(original, updated, detectMoves, null);
+    }
+
+    /**
+     * Calculates the changes which transform the original list into the updated list. Values
+     * are matched by the key returned from identity, matched values which are no longer equal
+     * are reported as changed in place rather than removed and inserted.
+     *
+     * @param identity Returns the key identifying a value, or null to match values by equality
+     */
+    public static <T> List<Change> calculateDiff(final List<T> original, final List<T> updated, boolean detectMoves,
+                                                 Function<? super T, ?> identity) {
+
+        final List<?> originalKeys = identity == null ? original : keys(original, identity);
+        final List<?> updatedKeys = identity == null ? updated : keys(updated, identity);
 
         EqualsComparator<Integer> compare = new EqualsComparator<Integer>() {
             @Override
             public boolean isEqualTo(Integer indexOriginal, Integer indexUpdated) {
-                T a = original.get(indexOriginal);
-                T b = updated.get(indexUpdated);
+                return equal(originalKeys.get(indexOriginal), updatedKeys.get(indexUpdated));
+            }
 
-                return a == b || (a != null && a.equals(b));
+            @Override
+            public boolean isContentEqualTo(Integer indexOriginal, Integer indexUpdated) {
+                return originalKeys == original || equal(original.get(indexOriginal), updated.get(indexUpdated));
             }
         };
         final int oldSize = original.size();
@@ -113,6 +132,23 @@ public class Diff
         return new DiffResult<>(original, updated, snakes, forward, backward, detectMoves, compare).toChangeList();
     }
 
+    private static <T> List<Object> keys(List<T> values, Function<? super T, ?> identity) {
+        List<Object> keys = new ArrayList<>(values.size());
+        try {
+            for (T value : values) {
+                keys.add(identity.apply(value));
+            }
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return keys;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
     private static <T> Snake diffPartial(List<T> original, List<T> updated, EqualsComparator<Integer> compare, int startOld, int endOld,
                                      int startNew, int endNew, int[] forward, int[] backward, int kOffset) {
         final int oldSize = endOld - startOld;
@@ -226,6 +262,8 @@ public class Diff
      * You can consume the updates in a DiffResult via
      */
     private static class DiffResult<T> {
+        // Set alongside the other flags when a matched item's contents are no longer equal
+        private static final int FLAG_CHANGED = 1;
         private static final int FLAG_MOVED = 4 << 1;
         // If this is an addition from the new list, it means the item is actually removed from an
         // earlier position and its move will be dispatched when we process the matching isRemove
@@ -237,6 +275,7 @@ public class Diff
 
         private static final int FLAG_OFFSET = 5;
         private static final int FLAG_MASK = (1 << FLAG_OFFSET) - 1;
+        private static final int FLAG_TYPE_MASK = FLAG_MASK & ~FLAG_CHANGED;
         // The Myers' snakes. At this point, we only care about their diagonal sections.
         private final List<Snake> _snakes;
         // The list to keep oldItemStatuses. As we traverse old items, we assign flags to them
@@ -320,8 +359,9 @@ public class Diff
                     // matching items. Check if it is changed or not
                     final int oldItemPos = snake.x + j;
                     final int newItemPos = snake.y + j;
-                    _oldItemStatuses[oldItemPos] = (newItemPos << FLAG_OFFSET);
-                    _newItemStatuses[newItemPos] = (oldItemPos << FLAG_OFFSET);
+                    final int changed = compare.isContentEqualTo(oldItemPos, newItemPos) ? 0 : FLAG_CHANGED;
+                    _oldItemStatuses[oldItemPos] = (newItemPos << FLAG_OFFSET) | changed;
+                    _newItemStatuses[newItemPos] = (oldItemPos << FLAG_OFFSET) | changed;
                 }
                 posOld = snake.x;
                 posNew = snake.y;
@@ -373,8 +413,9 @@ public class Diff
                     for (int pos = curX - 1; pos >= endX; pos--) {
                         if (compare.isEqualTo(pos, itemPosition)) {
                             // found!
-                            _newItemStatuses[itemPosition] = (pos << FLAG_OFFSET) | FLAG_IGNORE;
-                            _oldItemStatuses[pos] = (itemPosition << FLAG_OFFSET) | FLAG_MOVED;
+                            final int changed = compare.isContentEqualTo(pos, itemPosition) ? 0 : FLAG_CHANGED;
+                            _newItemStatuses[itemPosition] = (pos << FLAG_OFFSET) | FLAG_IGNORE | changed;
+                            _oldItemStatuses[pos] = (itemPosition << FLAG_OFFSET) | FLAG_MOVED | changed;
                             return true;
                         }
                     }
@@ -383,8 +424,9 @@ public class Diff
                     for (int pos = curY - 1; pos >= endY; pos--) {
                         if (compare.isEqualTo(itemPosition, pos)) {
                             // found
-                            _oldItemStatuses[x - 1] = (pos << FLAG_OFFSET) | FLAG_IGNORE;
-                            _newItemStatuses[pos] = ((x - 1) << FLAG_OFFSET) | FLAG_MOVED;
+                            final int changed = compare.isContentEqualTo(itemPosition, pos) ? 0 : FLAG_CHANGED;
+                            _oldItemStatuses[x - 1] = (pos << FLAG_OFFSET) | FLAG_IGNORE | changed;
+                            _newItemStatuses[pos] = ((x - 1) << FLAG_OFFSET) | FLAG_MOVED | changed;
                             return true;
                         }
                     }
@@ -400,11 +442,11 @@ public class Diff
          * These updates are atomic such that the first update call effects every update call that
          * comes after it (the same as RecyclerView).
          */
-        public List<Change> toChangeList() {
+        public ChangeSet toChangeList() {
             // These are add/remove ops that are converted to moves. We track their positions until
             // their respective update operations are processed.
             final List<PostponedUpdate> postponedUpdates = new ArrayList<>();
-            List<Change> changes = new ArrayList<>();
+            ChangeSet.Builder changes = new ChangeSet.Builder();
             int posOld = _oldListSize;
             int posNew = _newListSize;
             for (int snakeIndex = _snakes.size() - 1; snakeIndex >= 0; snakeIndex--) {
@@ -413,17 +455,22 @@ public class Diff
                 final int endX = snake.x + snakeSize;
                 final int endY = snake.y + snakeSize;
                 if (endX < posOld) {
-                    changes.addAll(dispatchRemovals(postponedUpdates, endX, posOld - endX, endX));
+                    dispatchRemovals(changes, postponedUpdates, endX, posOld - endX, endX);
                 }
                 if (endY < posNew) {
-                    changes.addAll(dispatchAdditions(postponedUpdates, endX, posNew - endY,
-                            endY));
+                    dispatchAdditions(changes, postponedUpdates, endX, posNew - endY,
+                            endY);
+                }
+                for (int i = snakeSize - 1; i >= 0; i--) {
+                    if ((_oldItemStatuses[snake.x + i] & FLAG_CHANGED) != 0) {
+                        changes.append(Change.Type.Changed, snake.x + i, snake.x + i, 1, null);
+                    }
                 }
                 posOld = snake.x;
                 posNew = snake.y;
             }
 
-            return changes;
+            return changes.build();
         }
         private static PostponedUpdate removePostponedUpdate(List<PostponedUpdate> updates,
                                                              int pos, boolean removal) {
@@ -440,20 +487,17 @@ public class Diff
             }
             return null;
         }
-        private List<Change> dispatchAdditions(List<PostponedUpdate> postponedUpdates,
+        private void dispatchAdditions(ChangeSet.Builder changes, List<PostponedUpdate> postponedUpdates,
                                        int start, int count, int globalIndex) {
-            List<Change> changes = new ArrayList<>();
             if (!_detectMoves) {
-                for (int i = 0; i < count; ++i) {
-                    changes.add(Change.inserted(start + i));
-                }
-                return changes;
+                changes.append(Change.inserted(start, count));
+                return;
             }
             for (int i = count - 1; i >= 0; i--) {
-                int status = _newItemStatuses[globalIndex + i] & FLAG_MASK;
+                int status = _newItemStatuses[globalIndex + i] & FLAG_TYPE_MASK;
                 switch (status) {
                     case 0: // real addition
-                        changes.add(Change.inserted(start));
+                        changes.append(Change.Type.Inserted, start, start, 1, null);
                         for (PostponedUpdate update : postponedUpdates) {
                             update.currentPos += 1;
                         }
@@ -464,7 +508,10 @@ public class Diff
                                 true);
                         // the item was moved from that position
                         //noinspection ConstantConditions
-                        changes.add(Change.moved(update.currentPos, start));
+                        changes.append(Change.Type.Moved, update.currentPos, start, 1, null);
+                        if ((_newItemStatuses[globalIndex + i] & FLAG_CHANGED) != 0) {
+                            changes.append(Change.Type.Changed, start, start, 1, null);
+                        }
                         break;
                     case FLAG_IGNORE: // ignoring this
                         postponedUpdates.add(new PostponedUpdate(globalIndex + i, start, false));
@@ -475,23 +522,18 @@ public class Diff
                                         .toBinaryString(status));
                 }
             }
-
-            return changes;
         }
-        private List<Change> dispatchRemovals(List<PostponedUpdate> postponedUpdates,
+        private void dispatchRemovals(ChangeSet.Builder changes, List<PostponedUpdate> postponedUpdates,
                                       int start, int count, int globalIndex) {
-            List<Change> changes = new ArrayList<>();
             if (!_detectMoves) {
-                for (int i = 0; i < count; ++i) {
-                    changes.add(Change.removed(start));
-                }
-                return changes;
+                changes.append(Change.removed(start, count));
+                return;
             }
             for (int i = count - 1; i >= 0; i--) {
-                final int status = _oldItemStatuses[globalIndex + i] & FLAG_MASK;
+                final int status = _oldItemStatuses[globalIndex + i] & FLAG_TYPE_MASK;
                 switch (status) {
                     case 0: // real isRemove
-                        changes.add(Change.removed(start + i));
+                        changes.append(Change.Type.Removed, start + i, start + i, 1, null);
                         for (PostponedUpdate update : postponedUpdates) {
                             update.currentPos -= 1;
                         }
@@ -503,7 +545,10 @@ public class Diff
                         // the item was moved to that position. we do -1 because this is a move not
                         // add and removing current item offsets the target move by 1
                         //noinspection ConstantConditions
-                        changes.add(Change.moved(start + i, update.currentPos - 1));
+                        changes.append(Change.Type.Moved, start + i, update.currentPos - 1, 1, null);
+                        if ((_oldItemStatuses[globalIndex + i] & FLAG_CHANGED) != 0) {
+                            changes.append(Change.Type.Changed, update.currentPos - 1, update.currentPos - 1, 1, null);
+                        }
                         break;
                     case FLAG_IGNORE: // ignoring this
                         postponedUpdates.add(new PostponedUpdate(globalIndex + i, start + i, true));
@@ -512,8 +557,6 @@ public class Diff
                         throw new IllegalStateException("unknown flag for pos " + (globalIndex + i) + " " + Long.toBinaryString(status));
                 }
             }
-
-            return changes;
         }
     }
     /**
@@ -537,5 +580,7 @@ public class Diff
     private interface EqualsComparator<T>
     {
         boolean isEqualTo(T a, T b);
+
+        boolean isContentEqualTo(T a, T b);
     }
 }
\ No newline at end of file
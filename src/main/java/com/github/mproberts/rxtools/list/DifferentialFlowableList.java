@@ -13,15 +13,22 @@ class DifferentialFlowableList<T> extends FlowableList<T>
     private final Flowable<Update<T>> _diffTransform;
     private List<T> _previousList;
     private boolean _detectMoves;
+    private final Function<? super T, ?> _identity;
 
     private List<Change> computeDiff(final List<T> before, final List<T> after)
     {
-        return Diff.calculateDiff(before, after, _detectMoves);
+        return Diff.calculateDiff(before, after, _detectMoves, _identity);
     }
 
     DifferentialFlowableList(Flowable<List<T>> list, boolean detectMoves)
+    {
+        this(list, detectMoves, null);
+    }
+
+    DifferentialFlowableList(Flowable<List<T>> list, boolean detectMoves, Function<? super T, ?> identity)
     {
         _detectMoves = detectMoves;
+        _identity = identity;
         _diffTransform = list
                 .map(new Function<List<T>, Update<T>>() {
                     @Override
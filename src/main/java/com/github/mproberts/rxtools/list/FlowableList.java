@@ -149,6 +149,21 @@ public abstract class FlowableList<T>
         return new DifferentialFlowableList<>(listStream, detectMoves);
     }
 
+    /**
+     * Observes a stream of type List and computes the diff between successive emissions,
+     * matching values by the key returned from identity. Matched values which are no longer
+     * equal are emitted as changed in place rather than as a removal and an insertion.
+     * @param listStream The list to wrap
+     * @param detectMoves Indicates whether to apply move calculation to the diff
+     * @param identity Returns the key identifying a value across emissions
+     * @param <T> The type of elements
+     * @return A new FlowableList
+     */
+    public static <T> FlowableList<T> diff(Flowable<List<T>> listStream, boolean detectMoves, Function<? super T, ?> identity)
+    {
+        return new DifferentialFlowableList<>(listStream, detectMoves, identity);
+    }
+
     /**
      * Wraps the supplied list, calling the map method when the get method is called for a specific index.
      * @param transform A function transforming the source to the target type
@@ -315,6 +330,17 @@ public abstract class FlowableList<T>
         return new HeaderFlowableList(this, header);
     }
 
+    /**
+     * Conflates updates which a subscriber is not yet ready to receive. Rather than being
+     * buffered, pending updates are merged into a single update with the latest list and the
+     * combined changes, or a reload, so at most one update is held for each subscriber
+     * @return A flowable list whose updates are conflated under backpressure
+     */
+    public FlowableList<T> conflate()
+    {
+        return lift(new ConflatingUpdateOperator<T>());
+    }
+
     /**
      * Wraps the supplied list's updates with the provided lift operator.
      * See https://github.com/ReactiveX/RxJava/wiki/Implementing-Your-Own-Operators for documentation on lift()
@@ -6,7 +6,6 @@ import io.reactivex.functions.Function;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * Created by mproberts on 2018-12-06.
@@ -32,27 +31,10 @@ public class HeaderFlowableList extends FlowableList {
                     return new Update(new ArrayList(), Change.reloaded());
                 }
 
-                ArrayList<Change> changes = new ArrayList<>();
-
-                for (Change change : (List<Change>) update.changes) {
-                    switch (change.type) {
-                        case Inserted:
-                            changes.add(Change.inserted(change.to + 1));
-                            break;
-                        case Removed:
-                            changes.add(Change.removed(change.from + 1));
-                            break;
-                        case Moved:
-                            changes.add(Change.moved(change.from + 1, change.to + 1));
-                            break;
-                        default:
-                            changes.add(Change.reloaded());
-                            break;
-                    }
-                }
+                ChangeSet changes = update.changeSet().offset(1);
 
                 if (previous.list.isEmpty()) {
-                    changes.add(0, Change.inserted(0));
+                    changes = new ChangeSet.Builder().add(Change.inserted(0)).addAll(changes).build();
                 }
 
                 return new Update(new ConcatList(Arrays.asList(_header), update.list), changes);
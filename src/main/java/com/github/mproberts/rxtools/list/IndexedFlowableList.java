@@ -11,6 +11,7 @@ import io.reactivex.processors.PublishProcessor;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public class IndexedFlowableList<T, R> extends FlowableList<R>
@@ -270,81 +271,38 @@ public class IndexedFlowableList<T, R> extends FlowableList<R>
                     }
                 }
 
-                for (Change change : update.changes) {
-                    switch (change.type) {
-                        case Moved: {
-                            IndexHolder<T> previousIndexHolder;
-                            IndexHolder<T> nextIndexHolder;
-
-                            IndexHolder<T> toPreviousIndexHolder;
-                            IndexHolder<T> toNextIndexHolder;
-
-                            if (change.to < change.from) {
-                                previousIndexHolder = getIndexHolder(change.from - 1, false, update.list, updatedIndex);
-                                nextIndexHolder = getIndexHolder(change.from + 1, false, update.list, updatedIndex);
-
-                                toPreviousIndexHolder = getIndexHolder(change.to - 1, false, update.list, updatedIndex);
-                                toNextIndexHolder = getIndexHolder(change.to, false, update.list, updatedIndex);
-
-                                adjustIndexes(change.to, change.from, +1, updatedIndex);
-                            } else {
-                                previousIndexHolder = getIndexHolder(change.from - 1, false, update.list, updatedIndex);
-                                nextIndexHolder = getIndexHolder(change.from + 1, false, update.list, updatedIndex);
-
-                                toPreviousIndexHolder = getIndexHolder(change.to, false, update.list, updatedIndex);
-                                toNextIndexHolder = getIndexHolder(change.to - 1, false, update.list, updatedIndex);
-
-                                adjustIndexes(change.from + 1, change.to, -1, updatedIndex);
-                            }
-
-                            if (previousIndexHolder != null) {
-                                previousIndexHolder.setNextDirty();
-                            }
-
-                            if (nextIndexHolder != null) {
-                                nextIndexHolder.setPreviousDirty();
-                            }
+                ChangeSet.Cursor change = update.changeSet().cursor();
 
-                            if (toPreviousIndexHolder != null) {
-                                toPreviousIndexHolder.setNextDirty();
-                            }
+                while (change.next()) {
+                    switch (change.type()) {
+                        case Moved: {
+                            markNextDirty(change.from() - 1, updatedIndex);
+                            markPreviousDirty(change.from() + change.count(), updatedIndex);
 
-                            if (toNextIndexHolder != null) {
-                                toNextIndexHolder.setPreviousDirty();
-                            }
+                            remapIndexes(change, updatedIndex);
 
+                            markNextDirty(change.to() - 1, updatedIndex);
+                            markPreviousDirty(change.to(), updatedIndex);
+                            markNextDirty(change.to() + change.count() - 1, updatedIndex);
+                            markPreviousDirty(change.to() + change.count(), updatedIndex);
                             break;
                         }
                         case Removed: {
-                            IndexHolder<T> previousIndexHolder = getIndexHolder(change.from - 1, false, update.list, updatedIndex);
-                            IndexHolder<T> nextIndexHolder = getIndexHolder(change.from + 1, false, update.list, updatedIndex);
-
-                            adjustIndexes(change.from, update.list.size(), -1, updatedIndex);
-
-                            if (previousIndexHolder != null) {
-                                previousIndexHolder.setNextDirty();
-                            }
-
-                            if (nextIndexHolder != null) {
-                                nextIndexHolder.setPreviousDirty();
-                            }
+                            markNextDirty(change.from() - 1, updatedIndex);
+                            markPreviousDirty(change.from() + change.count(), updatedIndex);
 
+                            remapIndexes(change, updatedIndex);
                             break;
                         }
                         case Inserted: {
-                            IndexHolder<T> previousIndexHolder = getIndexHolder(change.to - 1, false, update.list, updatedIndex);
-                            IndexHolder<T> nextIndexHolder = getIndexHolder(change.to, false, update.list, updatedIndex);
-
-                            adjustIndexes(change.to, update.list.size() - 1, 1, updatedIndex);
-
-                            if (previousIndexHolder != null) {
-                                previousIndexHolder.setNextDirty();
-                            }
-
-                            if (nextIndexHolder != null) {
-                                nextIndexHolder.setPreviousDirty();
-                            }
+                            markNextDirty(change.to() - 1, updatedIndex);
+                            markPreviousDirty(change.to(), updatedIndex);
 
+                            remapIndexes(change, updatedIndex);
+                            break;
+                        }
+                        case Changed: {
+                            markChanged(change, updatedIndex);
                             break;
                         }
                         case Reloaded: {
@@ -378,20 +336,55 @@ public class IndexedFlowableList<T, R> extends FlowableList<R>
         return _updates;
     }
 
-    private void adjustIndexes(int start, int end, int adjustment, List<IndexHolder<T>> indexList)
+    private void markPreviousDirty(int index, List<IndexHolder<T>> indexList)
+    {
+        IndexHolder<T> indexHolder = getIndexHolder(index, false, null, indexList);
+
+        if (indexHolder != null) {
+            indexHolder.setPreviousDirty();
+        }
+    }
+
+    private void markNextDirty(int index, List<IndexHolder<T>> indexList)
+    {
+        IndexHolder<T> indexHolder = getIndexHolder(index, false, null, indexList);
+
+        if (indexHolder != null) {
+            indexHolder.setNextDirty();
+        }
+    }
+
+    private void markChanged(ChangeSet.Cursor change, List<IndexHolder<T>> indexList)
     {
-        List<IndexHolder<T>> toUpdate = new ArrayList<>();
+        int start = change.from();
+        int end = change.from() + change.count();
+
+        for (IndexHolder<T> indexHolder : indexList) {
+            int index = indexHolder.getIndex();
 
-        for (int i = start; i <= end; ++i) {
-            IndexHolder<T> indexHolder = getIndexHolder(i, false, null, indexList);
+            if (index >= start - 1 && index < end - 1) {
+                indexHolder.setNextDirty();
+            }
 
-            if (indexHolder != null) {
-                toUpdate.add(indexHolder);
+            if (index > start && index <= end) {
+                indexHolder.setPreviousDirty();
             }
         }
+    }
+
+    private void remapIndexes(ChangeSet.Cursor change, List<IndexHolder<T>> indexList)
+    {
+        // a single pass over the held indexes, regardless of the size of the changed range
+        for (Iterator<IndexHolder<T>> iterator = indexList.iterator(); iterator.hasNext(); ) {
+            IndexHolder<T> indexHolder = iterator.next();
+            int index = change.remap(indexHolder.getIndex());
 
-        for (IndexHolder<T> indexHolder : toUpdate) {
-            indexHolder.setIndex(indexHolder.getIndex() + adjustment);
+            if (index < 0) {
+                iterator.remove();
+            }
+            else {
+                indexHolder.setIndex(index);
+            }
         }
     }
 }
@@ -0,0 +1,639 @@
+package com.github.mproberts.rxtools.list;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable list which shares structure with the lists it was derived from. Values are
+ * stored in small chunks held by the nodes of a balanced tree, so inserting, removing or
+ * replacing a value only copies one chunk and the path to it, in O(log n), and the rest of
+ * the tree is shared between the old and new lists.
+ * <p>
+ * All of the modifying methods of {@link List} throw {@link UnsupportedOperationException},
+ * modified lists are produced through {@link #insert(int, Object) insert},
+ * {@link #delete(int) delete} and the other derivation methods.
+ * @param <T> The type of values contained in the list
+ */
+final class PersistentList<T> extends AbstractList<T>
+{
+    private static final int MAXIMUM_CHUNK_SIZE = 32;
+
+    private static final PersistentList<Object> EMPTY = new PersistentList<>(null);
+
+    /**
+     * A node holds a chunk of values, ordered after all of the values of its left subtree
+     * and before all of the values of its right subtree. Chunks are never empty
+     */
+    private static final class Node
+    {
+        final Node left;
+        final Object[] values;
+        final Node right;
+        final int size;
+        final int height;
+
+        Node(Node left, Object[] values, Node right)
+        {
+            this.left = left;
+            this.values = values;
+            this.right = right;
+            this.size = sizeOf(left) + values.length + sizeOf(right);
+            this.height = 1 + Math.max(heightOf(left), heightOf(right));
+        }
+    }
+
+    private final Node _root;
+
+    private PersistentList(Node root)
+    {
+        _root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentList<T> empty()
+    {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    /**
+     * Returns a persistent list containing the values of the collection, or the collection
+     * itself if it is already a persistent list
+     */
+    @SuppressWarnings("unchecked")
+    static <T> PersistentList<T> copyOf(Collection<? extends T> values)
+    {
+        if (values instanceof PersistentList) {
+            return (PersistentList<T>) values;
+        }
+
+        Node root = build(values);
+
+        return root == null ? PersistentList.<T>empty() : new PersistentList<T>(root);
+    }
+
+    private static PersistentList<?> wrap(Node root)
+    {
+        return root == null ? EMPTY : new PersistentList<>(root);
+    }
+
+    @Override
+    public int size()
+    {
+        return sizeOf(_root);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index)
+    {
+        checkIndex(index, size());
+
+        Node node = _root;
+
+        while (true) {
+            int leftSize = sizeOf(node.left);
+
+            if (index < leftSize) {
+                node = node.left;
+            }
+            else if (index < leftSize + node.values.length) {
+                return (T) node.values[index - leftSize];
+            }
+            else {
+                index -= leftSize + node.values.length;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * @return a list with the value inserted at the index
+     */
+    @SuppressWarnings("unchecked")
+    PersistentList<T> insert(int index, T value)
+    {
+        checkPosition(index, size());
+
+        return (PersistentList<T>) wrap(insert(_root, index, value));
+    }
+
+    /**
+     * @return a list with the values inserted, in order, starting at the index
+     */
+    @SuppressWarnings("unchecked")
+    PersistentList<T> insertAll(int index, Collection<? extends T> values)
+    {
+        checkPosition(index, size());
+
+        Node inserted = build(values);
+
+        if (inserted == null) {
+            return this;
+        }
+
+        Node[] parts = split(_root, index);
+
+        return (PersistentList<T>) wrap(concat(concat(parts[0], inserted), parts[1]));
+    }
+
+    /**
+     * @return a list with the value at the index removed
+     */
+    @SuppressWarnings("unchecked")
+    PersistentList<T> delete(int index)
+    {
+        checkIndex(index, size());
+
+        return (PersistentList<T>) wrap(remove(_root, index));
+    }
+
+    /**
+     * @return a list with the values from fromIndex, inclusive, to toIndex, exclusive, removed
+     */
+    @SuppressWarnings("unchecked")
+    PersistentList<T> deleteRange(int fromIndex, int toIndex)
+    {
+        checkPosition(fromIndex, toIndex);
+        checkPosition(toIndex, size());
+
+        if (fromIndex == toIndex) {
+            return this;
+        }
+
+        Node[] head = split(_root, fromIndex);
+        Node[] tail = split(head[1], toIndex - fromIndex);
+
+        return (PersistentList<T>) wrap(concat(head[0], tail[1]));
+    }
+
+    /**
+     * @return a list with the value at the index replaced
+     */
+    @SuppressWarnings("unchecked")
+    PersistentList<T> replace(int index, T value)
+    {
+        checkIndex(index, size());
+
+        return (PersistentList<T>) wrap(replace(_root, index, value));
+    }
+
+    /**
+     * @return a list with the value at fromIndex moved to toIndex
+     */
+    PersistentList<T> move(int fromIndex, int toIndex)
+    {
+        T value = get(fromIndex);
+
+        return delete(fromIndex).insert(toIndex, value);
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new ChunkIterator();
+    }
+
+    @Override
+    public int indexOf(Object o)
+    {
+        int index = 0;
+
+        for (T value : this) {
+            if (o == null ? value == null : o.equals(value)) {
+                return index;
+            }
+
+            ++index;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == this) {
+            return true;
+        }
+
+        if (!(o instanceof List)) {
+            return false;
+        }
+
+        List<?> other = (List<?>) o;
+
+        if (other.size() != size()) {
+            return false;
+        }
+
+        Iterator<?> otherIterator = other.iterator();
+
+        for (T value : this) {
+            Object otherValue = otherIterator.next();
+
+            if (value == null ? otherValue != null : !value.equals(otherValue)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return super.hashCode();
+    }
+
+    private class ChunkIterator implements Iterator<T>
+    {
+        private final Deque<Node> _path = new ArrayDeque<>();
+        private Object[] _chunk;
+        private int _offset;
+
+        ChunkIterator()
+        {
+            descendLeft(_root);
+            advanceChunk();
+        }
+
+        private void descendLeft(Node node)
+        {
+            while (node != null) {
+                _path.push(node);
+                node = node.left;
+            }
+        }
+
+        private void advanceChunk()
+        {
+            if (_path.isEmpty()) {
+                _chunk = null;
+                return;
+            }
+
+            Node node = _path.pop();
+
+            _chunk = node.values;
+            _offset = 0;
+
+            descendLeft(node.right);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return _chunk != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next()
+        {
+            if (_chunk == null) {
+                throw new NoSuchElementException();
+            }
+
+            T value = (T) _chunk[_offset++];
+
+            if (_offset == _chunk.length) {
+                advanceChunk();
+            }
+
+            return value;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Not modifiable");
+        }
+    }
+
+    /**
+     * @return the number of chunks holding the values of the list
+     */
+    int chunkCount()
+    {
+        return chunkCount(_root);
+    }
+
+    private static int chunkCount(Node node)
+    {
+        return node == null ? 0 : chunkCount(node.left) + 1 + chunkCount(node.right);
+    }
+
+    private static void checkIndex(int index, int size)
+    {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static void checkPosition(int index, int size)
+    {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static int sizeOf(Node node)
+    {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int heightOf(Node node)
+    {
+        return node == null ? 0 : node.height;
+    }
+
+    private static Node build(Collection<?> values)
+    {
+        Object[] all = values.toArray();
+        int chunkCount = (all.length + MAXIMUM_CHUNK_SIZE - 1) / MAXIMUM_CHUNK_SIZE;
+
+        return build(all, 0, chunkCount);
+    }
+
+    private static Node build(Object[] all, int fromChunk, int toChunk)
+    {
+        if (fromChunk >= toChunk) {
+            return null;
+        }
+
+        int middle = (fromChunk + toChunk) >>> 1;
+        int start = middle * MAXIMUM_CHUNK_SIZE;
+        int end = Math.min(all.length, start + MAXIMUM_CHUNK_SIZE);
+        Object[] chunk = new Object[end - start];
+
+        System.arraycopy(all, start, chunk, 0, chunk.length);
+
+        return new Node(build(all, fromChunk, middle), chunk, build(all, middle + 1, toChunk));
+    }
+
+    /**
+     * Creates a node from subtrees whose heights differ by at most two, rotating to restore
+     * the balance between them
+     */
+    private static Node balance(Node left, Object[] values, Node right)
+    {
+        int leftHeight = heightOf(left);
+        int rightHeight = heightOf(right);
+
+        if (leftHeight > rightHeight + 1) {
+            if (heightOf(left.left) >= heightOf(left.right)) {
+                return new Node(left.left, left.values, new Node(left.right, values, right));
+            }
+
+            return new Node(
+                    new Node(left.left, left.values, left.right.left),
+                    left.right.values,
+                    new Node(left.right.right, values, right));
+        }
+
+        if (rightHeight > leftHeight + 1) {
+            if (heightOf(right.right) >= heightOf(right.left)) {
+                return new Node(new Node(left, values, right.left), right.values, right.right);
+            }
+
+            return new Node(
+                    new Node(left, values, right.left.left),
+                    right.left.values,
+                    new Node(right.left.right, right.values, right.right));
+        }
+
+        return new Node(left, values, right);
+    }
+
+    /**
+     * Creates a node from subtrees of any height, all values of left preceding the chunk and
+     * all values of right following it
+     */
+    private static Node join(Node left, Object[] values, Node right)
+    {
+        if (heightOf(left) > heightOf(right) + 1) {
+            return balance(left.left, left.values, join(left.right, values, right));
+        }
+
+        if (heightOf(right) > heightOf(left) + 1) {
+            return balance(join(left, values, right.left), right.values, right.right);
+        }
+
+        return new Node(left, values, right);
+    }
+
+    private static Node concat(Node left, Node right)
+    {
+        if (left == null) {
+            return right;
+        }
+
+        if (right == null) {
+            return left;
+        }
+
+        return joinAdjacent(left, first(right).values, removeFirst(right));
+    }
+
+    /**
+     * Joins the chunk between the subtrees, first merging it with the last chunk of left and
+     * the first chunk of right wherever the merged chunk fits, so that cutting and rejoining
+     * the tree does not leave it fragmented into small chunks
+     */
+    private static Node joinAdjacent(Node left, Object[] values, Node right)
+    {
+        if (left != null) {
+            Object[] previous = last(left).values;
+
+            if (previous.length + values.length <= MAXIMUM_CHUNK_SIZE) {
+                values = merge(previous, values);
+                left = removeLast(left);
+            }
+        }
+
+        if (right != null) {
+            Object[] next = first(right).values;
+
+            if (values.length + next.length <= MAXIMUM_CHUNK_SIZE) {
+                values = merge(values, next);
+                right = removeFirst(right);
+            }
+        }
+
+        return join(left, values, right);
+    }
+
+    private static Object[] merge(Object[] head, Object[] tail)
+    {
+        Object[] values = new Object[head.length + tail.length];
+
+        System.arraycopy(head, 0, values, 0, head.length);
+        System.arraycopy(tail, 0, values, head.length, tail.length);
+
+        return values;
+    }
+
+    private static Node first(Node node)
+    {
+        while (node.left != null) {
+            node = node.left;
+        }
+
+        return node;
+    }
+
+    private static Node last(Node node)
+    {
+        while (node.right != null) {
+            node = node.right;
+        }
+
+        return node;
+    }
+
+    private static Node removeFirst(Node node)
+    {
+        if (node.left == null) {
+            return node.right;
+        }
+
+        return balance(removeFirst(node.left), node.values, node.right);
+    }
+
+    private static Node removeLast(Node node)
+    {
+        if (node.right == null) {
+            return node.left;
+        }
+
+        return balance(node.left, node.values, removeLast(node.right));
+    }
+
+    /**
+     * Splits the tree into the values before the index and the values from the index onwards
+     */
+    private static Node[] split(Node node, int index)
+    {
+        if (node == null) {
+            return new Node[2];
+        }
+
+        int leftSize = sizeOf(node.left);
+        int chunkSize = node.values.length;
+
+        if (index <= leftSize) {
+            Node[] parts = split(node.left, index);
+
+            parts[1] = join(parts[1], node.values, node.right);
+
+            return parts;
+        }
+
+        if (index < leftSize + chunkSize) {
+            int offset = index - leftSize;
+            Object[] head = new Object[offset];
+            Object[] tail = new Object[chunkSize - offset];
+
+            System.arraycopy(node.values, 0, head, 0, head.length);
+            System.arraycopy(node.values, offset, tail, 0, tail.length);
+
+            return new Node[] { join(node.left, head, null), join(null, tail, node.right) };
+        }
+
+        Node[] parts = split(node.right, index - leftSize - chunkSize);
+
+        parts[0] = join(node.left, node.values, parts[0]);
+
+        return parts;
+    }
+
+    private static Node insert(Node node, int index, Object value)
+    {
+        if (node == null) {
+            return new Node(null, new Object[] { value }, null);
+        }
+
+        int leftSize = sizeOf(node.left);
+        int chunkSize = node.values.length;
+
+        if (index < leftSize) {
+            return balance(insert(node.left, index, value), node.values, node.right);
+        }
+
+        if (index > leftSize + chunkSize) {
+            return balance(node.left, node.values, insert(node.right, index - leftSize - chunkSize, value));
+        }
+
+        int offset = index - leftSize;
+        Object[] values = new Object[chunkSize + 1];
+
+        System.arraycopy(node.values, 0, values, 0, offset);
+        values[offset] = value;
+        System.arraycopy(node.values, offset, values, offset + 1, chunkSize - offset);
+
+        if (values.length <= MAXIMUM_CHUNK_SIZE) {
+            return new Node(node.left, values, node.right);
+        }
+
+        // split the full chunk, the second half becomes the first chunk of the right subtree
+        int half = values.length / 2;
+        Object[] head = new Object[half];
+        Object[] tail = new Object[values.length - half];
+
+        System.arraycopy(values, 0, head, 0, head.length);
+        System.arraycopy(values, half, tail, 0, tail.length);
+
+        return join(node.left, head, join(null, tail, node.right));
+    }
+
+    private static Node remove(Node node, int index)
+    {
+        int leftSize = sizeOf(node.left);
+        int chunkSize = node.values.length;
+
+        if (index < leftSize) {
+            return balance(remove(node.left, index), node.values, node.right);
+        }
+
+        if (index >= leftSize + chunkSize) {
+            return balance(node.left, node.values, remove(node.right, index - leftSize - chunkSize));
+        }
+
+        if (chunkSize == 1) {
+            return concat(node.left, node.right);
+        }
+
+        int offset = index - leftSize;
+        Object[] values = new Object[chunkSize - 1];
+
+        System.arraycopy(node.values, 0, values, 0, offset);
+        System.arraycopy(node.values, offset + 1, values, offset, chunkSize - offset - 1);
+
+        return joinAdjacent(node.left, values, node.right);
+    }
+
+    private static Node replace(Node node, int index, Object value)
+    {
+        int leftSize = sizeOf(node.left);
+        int chunkSize = node.values.length;
+
+        if (index < leftSize) {
+            return new Node(replace(node.left, index, value), node.values, node.right);
+        }
+
+        if (index >= leftSize + chunkSize) {
+            return new Node(node.left, node.values, replace(node.right, index - leftSize - chunkSize, value));
+        }
+
+        Object[] values = node.values.clone();
+
+        values[index - leftSize] = value;
+
+        return new Node(node.left, values, node.right);
+    }
+}
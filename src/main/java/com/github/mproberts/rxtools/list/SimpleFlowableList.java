@@ -1,26 +1,81 @@
 package com.github.mproberts.rxtools.list;
 
+import io.reactivex.Scheduler;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 
-import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 
 /**
  * A basic FlowableList implementation which behaves much like a generic List. Additions, removals,
  * and moves will be automatically applied and emitted via the updates Flowable.
+ * <p>
+ * Each emitted list is a persistent list sharing structure with the lists emitted before it, so
+ * an operation costs O(log n) rather than a copy of the whole list.
  * @param <T> The value type of the list
  */
 public class SimpleFlowableList<T> extends BaseFlowableList<T>
 {
     private final Object _batchingLock = new Object();
-    private List<Function<List<T>, Update<T>>> _batchedOperations;
+    private List<Operation<T>> _batchedOperations;
 
-    void applyOperation(final Function<List<T>, Update<T>> operation)
+    private volatile boolean _groupCommit;
+    private volatile Scheduler.Worker _groupCommitWorker;
+    private final Queue<Operation<T>> _pendingOperations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean _commitScheduled = new AtomicBoolean();
+
+    private final Function<List<T>, Update<T>> _commitPendingOperations = new Function<List<T>, Update<T>>() {
+        @Override
+        public Update<T> apply(List<T> list) throws Exception
+        {
+            // operations queued from here on schedule another commit
+            _commitScheduled.set(false);
+
+            List<Operation<T>> operations = new ArrayList<>();
+            Operation<T> operation;
+
+            while ((operation = _pendingOperations.poll()) != null) {
+                operations.add(operation);
+            }
+
+            if (operations.isEmpty()) {
+                return null;
+            }
+
+            return applyOperations(list, operations);
+        }
+    };
+
+    private final Runnable _scheduledCommit = new Runnable() {
+        @Override
+        public void run()
+        {
+            applyUpdate(_commitPendingOperations);
+        }
+    };
+
+    /**
+     * A modification of the list
+     */
+    interface Operation<T>
+    {
+        /**
+         * @param list The current state of the list
+         * @param changes The builder to add the changes made to, or null if the list is not
+         *                observed and the changes do not need to be described
+         * @return The modified list, or null if the operation left the list unchanged
+         */
+        PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes) throws Exception;
+    }
+
+    void applyOperation(final Operation<T> operation)
     {
         synchronized (_batchingLock) {
             if (_batchedOperations != null) {
@@ -29,23 +84,86 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
             }
         }
 
+        commit(operation);
+    }
+
+    private void commit(final Operation<T> operation)
+    {
+        if (_groupCommit) {
+            _pendingOperations.offer(operation);
+
+            if (_commitScheduled.compareAndSet(false, true)) {
+                Scheduler.Worker worker = _groupCommitWorker;
+
+                if (worker != null) {
+                    worker.schedule(_scheduledCommit);
+                }
+                else {
+                    _scheduledCommit.run();
+                }
+            }
+            return;
+        }
+
         applyUpdate(new Function<List<T>, Update<T>>() {
             @Override
             public Update<T> apply(List<T> list) throws Exception
             {
-                list = new ArrayList<>(list);
-
-                return operation.apply(list);
+                return applyOperations(list, Collections.singletonList(operation));
             }
         });
     }
 
+    private Update<T> applyOperations(List<T> list, List<Operation<T>> operations) throws Exception
+    {
+        ChangeSet.Builder changes = isObserved() ? new ChangeSet.Builder() : null;
+        PersistentList<T> resultList = applyAll(PersistentList.copyOf(list), operations, changes);
+
+        if (resultList == null) {
+            return null;
+        }
+
+        if (changes == null) {
+            // nobody is listening, the next subscriber is sent the new state as a reload
+            setPreviousList(resultList);
+            return null;
+        }
+
+        ChangeSet changeSet = changes.build();
+
+        if (changeSet.size() > 1) {
+            changeSet = ChangeNormalizer.normalize(changeSet, resultList.size());
+
+            if (changeSet.isEmpty()) {
+                // the operations cancelled each other out
+                return null;
+            }
+        }
+
+        return new Update<>(resultList, changeSet);
+    }
+
+    private static <T> PersistentList<T> applyAll(PersistentList<T> list, List<Operation<T>> operations, ChangeSet.Builder changes) throws Exception
+    {
+        PersistentList<T> resultList = null;
+
+        for (Operation<T> operation : operations) {
+            PersistentList<T> updatedList = operation.apply(resultList == null ? list : resultList, changes);
+
+            if (updatedList != null) {
+                resultList = updatedList;
+            }
+        }
+
+        return resultList;
+    }
+
     /**
      * Constructs a new, empty SimpleFlowableList
      */
     public SimpleFlowableList()
     {
-        super(Collections.<T>emptyList());
+        super(PersistentList.<T>empty());
     }
 
     /**
@@ -54,42 +172,68 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public SimpleFlowableList(List<T> initialState)
     {
-        super(initialState);
+        super(initialState == null ? null : PersistentList.copyOf(initialState));
     }
 
     /**
-     * Groups operations into a single emission. This reduces changes to a single change list
-     * as well a only emitting a single immutable list.
+     * Enables or disables group commit, with each commit applied by the thread which made the
+     * first of its operations
+     * @param groupCommit true if operations should be committed as a group
+     * @see #setGroupCommit(boolean, Scheduler)
+     */
+    public void setGroupCommit(boolean groupCommit)
+    {
+        setGroupCommit(groupCommit, null);
+    }
+
+    /**
+     * Enables or disables group commit. While group commit is enabled, operations queued while
+     * an update is being applied, or before a commit runs on the scheduler, are folded into a
+     * single update with one list and one normalized change set, so callers are not held up
+     * by the subscribers of each individual operation
+     * @param groupCommit true if operations should be committed as a group
+     * @param scheduler The scheduler on which commits are applied and emitted, or null to
+     *                  apply them as operations are made
+     */
+    public void setGroupCommit(boolean groupCommit, Scheduler scheduler)
+    {
+        Scheduler.Worker previousWorker = _groupCommitWorker;
+
+        _groupCommitWorker = groupCommit && scheduler != null ? scheduler.createWorker() : null;
+        _groupCommit = groupCommit;
+
+        if (previousWorker != null) {
+            previousWorker.dispose();
+        }
+
+        // commit anything still pending from a previous worker ahead of new operations
+        applyUpdate(_commitPendingOperations);
+    }
+
+    /**
+     * Groups operations into a single emission. This reduces changes to a single, normalized
+     * change list as well a only emitting a single immutable list.
      * @param changes An action to be called which will apply operations to the list
      */
     public void batch(final Consumer<SimpleFlowableList<T>> changes)
     {
         final SimpleFlowableList<T> target = this;
 
-        applyUpdate(new Function<List<T>, Update<T>>() {
+        commit(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list) throws Exception
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changeSet) throws Exception
             {
-                List<Function<List<T>, Update<T>>> batchedOperations;
-
                 synchronized (_batchingLock) {
                     _batchedOperations = new ArrayList<>();
 
-                    changes.accept(target);
-
-                    List<T> resultList = new ArrayList<>(list);
-                    List<Change> allChanges = new ArrayList<>();
-
-                    for (Function<List<T>, Update<T>> operation : _batchedOperations) {
-                        Update<T> update = operation.apply(resultList);
+                    try {
+                        changes.accept(target);
 
-                        allChanges.addAll(update.changes);
-                        resultList = update.list;
+                        return applyAll(list, _batchedOperations, changeSet);
+                    }
+                    finally {
+                        _batchedOperations = null;
                     }
-
-                    _batchedOperations = null;
-
-                    return new Update<>(resultList, allChanges);
                 }
             }
         });
@@ -100,11 +244,15 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public void clear()
     {
-        applyOperation(new Function<List<T>, Update<T>>() {
+        applyOperation(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list)
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
             {
-                return new Update<>(Arrays.<T>asList(), Change.reloaded());
+                if (changes != null) {
+                    changes.add(Change.reloaded());
+                }
+
+                return PersistentList.empty();
             }
         });
     }
@@ -115,15 +263,17 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public void add(final T value)
     {
-        applyOperation(new Function<List<T>, Update<T>>() {
+        applyOperation(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list)
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
             {
                 int size = list.size();
 
-                list.add(value);
+                if (changes != null) {
+                    changes.append(Change.Type.Inserted, size, size, 1, null);
+                }
 
-                return new Update<>(list, Change.inserted(size));
+                return list.insert(size, value);
             }
         });
     }
@@ -135,15 +285,17 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public void add(final int index, final T value)
     {
-        applyOperation(new Function<List<T>, Update<T>>() {
+        applyOperation(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list)
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
             {
-                int position = Math.min(list.size(), index);
+                if (changes != null) {
+                    int position = Math.min(list.size(), index);
 
-                list.add(index, value);
+                    changes.append(Change.Type.Inserted, position, position, 1, null);
+                }
 
-                return new Update<>(list, Change.inserted(position));
+                return list.insert(index, value);
             }
         });
     }
@@ -154,21 +306,21 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public void addAll(final Collection<? extends T> values)
     {
-        applyOperation(new Function<List<T>, Update<T>>() {
+        applyOperation(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list)
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
             {
-                int size = list.size();
-
-                list.addAll(values);
+                if (values.isEmpty()) {
+                    return null;
+                }
 
-                List<Change> changes = new ArrayList<>();
+                int size = list.size();
 
-                for (int i = 0; i < values.size(); ++i) {
-                    changes.add(Change.inserted(size + i));
+                if (changes != null) {
+                    changes.append(Change.Type.Inserted, size, size, values.size(), null);
                 }
 
-                return new Update<>(list, changes);
+                return list.insertAll(size, values);
             }
         });
     }
@@ -180,9 +332,9 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public void move(final int fromIndex, final int toIndex)
     {
-        applyOperation(new Function<List<T>, Update<T>>() {
+        applyOperation(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list)
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
             {
                 int toPosition = Math.min(list.size() - 1, toIndex);
 
@@ -191,9 +343,42 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
                     return null;
                 }
 
-                list.add(toPosition, list.remove(fromIndex));
+                if (changes != null) {
+                    changes.append(Change.Type.Moved, fromIndex, toIndex, 1, null);
+                }
 
-                return new Update<>(list, Change.moved(fromIndex, toIndex));
+                return list.move(fromIndex, toPosition);
+            }
+        });
+    }
+
+    /**
+     * Replaces the value at the specified position, emitting it as a change in place
+     * @param index The index of the value to replace
+     * @param value The new value
+     */
+    public void set(final int index, final T value)
+    {
+        set(index, value, null);
+    }
+
+    /**
+     * Replaces the value at the specified position, emitting it as a change in place
+     * @param index The index of the value to replace
+     * @param value The new value
+     * @param payload Describes what changed about the value, passed along with the change
+     */
+    public void set(final int index, final T value, final Object payload)
+    {
+        applyOperation(new Operation<T>() {
+            @Override
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
+            {
+                if (changes != null) {
+                    changes.append(Change.Type.Changed, index, index, 1, payload);
+                }
+
+                return list.replace(index, value);
             }
         });
     }
@@ -204,13 +389,15 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public void remove(final int index)
     {
-        applyOperation(new Function<List<T>, Update<T>>() {
+        applyOperation(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list)
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
             {
-                list.remove(index);
+                if (changes != null) {
+                    changes.append(Change.Type.Removed, index, index, 1, null);
+                }
 
-                return new Update<>(list, Change.removed(index));
+                return list.delete(index);
             }
         });
     }
@@ -221,9 +408,9 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public void remove(final T value)
     {
-        applyOperation(new Function<List<T>, Update<T>>() {
+        applyOperation(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list)
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
             {
                 int index = list.indexOf(value);
 
@@ -231,9 +418,11 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
                     return null;
                 }
 
-                list.remove(index);
+                if (changes != null) {
+                    changes.append(Change.Type.Removed, index, index, 1, null);
+                }
 
-                return new Update<>(list, Change.removed(index));
+                return list.delete(index);
             }
         });
     }
@@ -244,15 +433,22 @@ public class SimpleFlowableList<T> extends BaseFlowableList<T>
      */
     public void remove(final Predicate<T> predicate)
     {
-        applyOperation(new Function<List<T>, Update<T>>() {
+        applyOperation(new Operation<T>() {
             @Override
-            public Update<T> apply(List<T> list)
+            public PersistentList<T> apply(PersistentList<T> list, ChangeSet.Builder changes)
             {
-                for (int index = 0; index < list.size(); index++) {
-                    if (predicate.test(list.get(index))) {
-                        list.remove(index);
-                        return new Update<>(list, Change.removed(index));
+                int index = 0;
+
+                for (T value : list) {
+                    if (predicate.test(value)) {
+                        if (changes != null) {
+                            changes.append(Change.Type.Removed, index, index, 1, null);
+                        }
+
+                        return list.delete(index);
                     }
+
+                    ++index;
                 }
 
                 return null;
@@ -2,7 +2,6 @@ package com.github.mproberts.rxtools.list;
 
 import com.github.mproberts.rxtools.map.SubjectMap;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -28,19 +27,29 @@ public final class Update<T>
     public final List<T> list;
 
     /**
-     * The set of changes which, when applied to the prior state, produce the new list
+     * The set of changes which, when applied to the prior state, produce the new list. This
+     * is always a {@link ChangeSet}, see {@link #changeSet()}
      */
     public final List<Change> changes;
 
     Update(List<T> list, Change change)
     {
-        this(list, Collections.singletonList(change));
+        this(list, ChangeSet.of(change));
     }
 
     Update(List<T> list, List<Change> changes)
     {
         this.list = list;
-        this.changes = changes;
+        this.changes = ChangeSet.copyOf(changes);
+    }
+
+    /**
+     * @return The changes of this update in their compact form, which can be read without
+     * allocating a Change for each
+     */
+    public ChangeSet changeSet()
+    {
+        return (ChangeSet) changes;
     }
 
     @Override
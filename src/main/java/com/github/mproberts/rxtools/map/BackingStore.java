@@ -0,0 +1,51 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.functions.Predicate;
+
+/**
+ * A secondary store of values consulted by a {@link SubjectMap} before the fault handler
+ * when a key is first bound, and updated with each value emitted by the map. Entries are
+ * removed when their keys are invalidated or errored.
+ * <p>
+ * Implementations must be safe to call from multiple threads.
+ *
+ * @param <K> key type for the store
+ * @param <V> value type for the store
+ */
+public interface BackingStore<K, V>
+{
+    /**
+     * Returns the stored value for the key
+     *
+     * @param key the key whose stored value is to be returned
+     *
+     * @return the stored value, or null if no value is stored for the key
+     * @throws Exception if the store could not be read
+     */
+    V get(K key) throws Exception;
+
+    /**
+     * Stores the value for the key, replacing any existing value
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be stored
+     * @throws Exception if the store could not be written
+     */
+    void put(K key, V value) throws Exception;
+
+    /**
+     * Removes the stored value for the key, if there is one
+     *
+     * @param key the key whose stored value is to be removed
+     * @throws Exception if the store could not be written
+     */
+    void remove(K key) throws Exception;
+
+    /**
+     * Removes the stored values of all keys matching the predicate
+     *
+     * @param predicate the predicate indicating whether a key's stored value should be removed
+     * @throws Exception if the store could not be read or written
+     */
+    void removeIf(Predicate<K> predicate) throws Exception;
+}
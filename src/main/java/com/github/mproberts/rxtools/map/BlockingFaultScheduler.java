@@ -0,0 +1,89 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the scheduler on which blocking fault handlers are run. On runtimes which support
+ * virtual threads, each fault runs on its own virtual thread. Otherwise faults share a bounded
+ * pool of daemon threads so that many concurrent faults cannot exhaust platform threads.
+ * <p>
+ * Virtual threads are detected reflectively so that the library remains usable on runtimes
+ * which predate them.
+ */
+final class BlockingFaultScheduler
+{
+    static final int BOUNDED_POOL_SIZE = 64;
+
+    private BlockingFaultScheduler()
+    {
+        // intentionally blank
+    }
+
+    private static class Holder
+    {
+        static final Scheduler INSTANCE = Schedulers.from(createExecutor());
+    }
+
+    static Scheduler get()
+    {
+        return Holder.INSTANCE;
+    }
+
+    static Executor createExecutor()
+    {
+        Executor virtualThreadExecutor = createVirtualThreadExecutor();
+
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor;
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                BOUNDED_POOL_SIZE,
+                BOUNDED_POOL_SIZE,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger _count = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "SubjectMapBlockingFault-" + _count.incrementAndGet());
+
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }
+                });
+
+        // let idle threads expire so an idle map holds no threads
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private static Executor createVirtualThreadExecutor()
+    {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (Exception e) {
+            // virtual threads are not available on this runtime
+            return null;
+        }
+    }
+}
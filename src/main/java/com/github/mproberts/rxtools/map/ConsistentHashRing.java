@@ -0,0 +1,62 @@
+package com.github.mproberts.rxtools.map;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable consistent hash ring mapping key hashes onto the ids of a set of nodes. Each
+ * node is placed on the ring many times so that keys are spread evenly and only the keys owned
+ * by a node which joins or leaves change owner. Nodes are placed by the hash of their id, which
+ * is the same in every process, so every node builds the same ring.
+ */
+final class ConsistentHashRing
+{
+    private final TreeMap<Integer, String> _ring;
+
+    ConsistentHashRing(Collection<String> nodeIds, int replicas)
+    {
+        _ring = new TreeMap<>();
+
+        for (String nodeId : nodeIds) {
+            for (int i = 0; i < replicas; ++i) {
+                _ring.put(mix((nodeId + "#" + i).hashCode()), nodeId);
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a hash code so that similar keys land far apart on the ring
+     */
+    private static int mix(int hash)
+    {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+
+        return hash;
+    }
+
+    /**
+     * @param keyHash the hash of the key, which must be the same in every process
+     *
+     * @return the id of the node owning the key
+     */
+    String nodeFor(int keyHash)
+    {
+        if (_ring.isEmpty()) {
+            throw new IllegalStateException("No nodes are members of the ring");
+        }
+
+        Map.Entry<Integer, String> owner = _ring.ceilingEntry(mix(keyHash));
+
+        if (owner == null) {
+            // wrap around to the start of the ring
+            owner = _ring.firstEntry();
+        }
+
+        return owner.getValue();
+    }
+}
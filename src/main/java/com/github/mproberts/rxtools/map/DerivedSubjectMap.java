@@ -0,0 +1,155 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A read-only view over a {@link SubjectMap} whose values are derived from the values of the
+ * underlying map.
+ * <p>
+ * Each derived key holds at most one subscription to the upstream key, no matter how many
+ * subscribers are bound to the derived observable. The transform is applied once per upstream
+ * emission and the result is shared with all subscribers. Like the SubjectMap, derived observables
+ * are weakly retained outside of a subscription and the upstream key is only attached while
+ * a subscriber is bound.
+ *
+ * @param <K> key type for the collection
+ * @param <V> value type for the emissions from the observables of the collection
+ */
+public class DerivedSubjectMap<K, V>
+{
+    private final Lock _writeLock;
+    private final Lock _readLock;
+
+    private final HashMap<K, WeakReference<Flowable<V>>> _weakCache;
+
+    private final Function<K, Flowable<V>> _upstream;
+
+    DerivedSubjectMap(Function<K, Flowable<V>> upstream)
+    {
+        ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+
+        _readLock = readWriteLock.readLock();
+        _writeLock = readWriteLock.writeLock();
+
+        _weakCache = new HashMap<>();
+        _upstream = upstream;
+    }
+
+    /**
+     * Returns an observable of the derived value associated with the specified key. The upstream
+     * key will be bound when the first subscriber subscribes and unbound when the last
+     * subscriber is disposed
+     *
+     * @param key the key whose associated observable is to be returned
+     *
+     * @return an observable which, when subscribed, will be bound to the specified key
+     * and will receive all derived emissions and errors for the specified key
+     */
+    public Flowable<V> get(final K key)
+    {
+        Flowable<V> observable;
+
+        _readLock.lock();
+
+        try {
+            observable = lookup(key);
+        }
+        finally {
+            _readLock.unlock();
+        }
+
+        if (observable != null) {
+            return observable;
+        }
+
+        _writeLock.lock();
+
+        try {
+            // recheck the observable since we had to retake the lock
+            observable = lookup(key);
+
+            if (observable == null) {
+                // the upstream is looked up on each connection, an errored key is discarded by
+                // the map and must be bound again through a new observable
+                Flowable<V> upstream = Flowable.defer(new Callable<Publisher<V>>() {
+                    @Override
+                    public Publisher<V> call() throws Exception
+                    {
+                        return _upstream.apply(key);
+                    }
+                });
+
+                observable = upstream
+                        .replay(1)
+                        .refCount();
+
+                _weakCache.put(key, new WeakReference<>(observable));
+            }
+
+            return observable;
+        }
+        finally {
+            _writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a list of observables associated with their respective keys. See {@link #get(Object) get}.
+     *
+     * @param keys list of keys whose associated observables will be returned
+     *
+     * @return a list of observables which, when subscribed, will be bound to the respective key
+     */
+    public List<Flowable<V>> getAll(List<K> keys)
+    {
+        List<Flowable<V>> values = new ArrayList<>(keys.size());
+
+        for (K key : keys) {
+            values.add(get(key));
+        }
+
+        return values;
+    }
+
+    /**
+     * Creates a further derived view of this view. See {@link SubjectMap#mapValues(Function) mapValues}.
+     *
+     * @param transform the function applied to each emission of this view
+     * @param <R> the type of the derived values
+     *
+     * @return a read-only view of the derived values
+     */
+    public <R> DerivedSubjectMap<K, R> mapValues(final Function<V, R> transform)
+    {
+        return new DerivedSubjectMap<>(new Function<K, Flowable<R>>() {
+            @Override
+            public Flowable<R> apply(K key)
+            {
+                return get(key).map(transform);
+            }
+        });
+    }
+
+    private Flowable<V> lookup(K key)
+    {
+        WeakReference<Flowable<V>> weakObservable = _weakCache.get(key);
+
+        if (weakObservable == null) {
+            return null;
+        }
+
+        // a cleared reference is replaced when the write lock is taken in get
+        return weakObservable.get();
+    }
+}
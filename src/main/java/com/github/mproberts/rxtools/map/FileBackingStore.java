@@ -0,0 +1,165 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.functions.Predicate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A {@link BackingStore} which persists each entry as a file within a directory using java
+ * serialization. Entries are written to a temporary file and moved into place so that readers
+ * never observe a partially written entry.
+ * <p>
+ * The store is intended for embedded use and testing, it performs no eviction of its own.
+ *
+ * @param <K> key type for the store
+ * @param <V> value type for the store
+ */
+public class FileBackingStore<K extends Serializable, V extends Serializable> implements BackingStore<K, V>
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path _directory;
+
+    /**
+     * Constructs a store which persists entries within the specified directory, creating
+     * the directory if it does not exist
+     *
+     * @param directory the directory in which to store entries
+     * @throws IOException if the directory could not be created
+     */
+    public FileBackingStore(File directory) throws IOException
+    {
+        _directory = directory.toPath();
+
+        Files.createDirectories(_directory);
+    }
+
+    private static byte[] serialize(Object value) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(value);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private Path pathFor(K key) throws IOException
+    {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        byte[] hash = digest.digest(serialize(key));
+        char[] name = new char[hash.length * 2];
+
+        for (int i = 0; i < hash.length; ++i) {
+            name[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            name[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+
+        return _directory.resolve(new String(name));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) throws Exception
+    {
+        byte[] contents;
+
+        try {
+            contents = Files.readAllBytes(pathFor(key));
+        }
+        catch (NoSuchFileException e) {
+            return null;
+        }
+
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(contents))) {
+            Object storedKey = input.readObject();
+
+            // guard against the vanishingly unlikely case of a hash collision
+            if (!key.equals(storedKey)) {
+                return null;
+            }
+
+            return (V) input.readObject();
+        }
+    }
+
+    @Override
+    public void put(K key, V value) throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(key);
+            output.writeObject(value);
+        }
+
+        Path target = pathFor(key);
+        Path temporary = Files.createTempFile(_directory, target.getFileName().toString(), TEMPORARY_SUFFIX);
+
+        try {
+            Files.write(temporary, bytes.toByteArray());
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public void remove(K key) throws Exception
+    {
+        Files.deleteIfExists(pathFor(key));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void removeIf(Predicate<K> predicate) throws Exception
+    {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(_directory)) {
+            for (Path entry : entries) {
+                if (entry.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+                    continue;
+                }
+
+                byte[] contents;
+
+                try {
+                    contents = Files.readAllBytes(entry);
+                }
+                catch (NoSuchFileException e) {
+                    continue;
+                }
+
+                // the key is written first, the value does not need to be read
+                try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(contents))) {
+                    if (predicate.test((K) input.readObject())) {
+                        Files.deleteIfExists(entry);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.mproberts.rxtools.map;
+
+/**
+ * A count-min sketch estimating how often keys have been accessed, used to decide which
+ * retained values are worth keeping. Each key is counted in one small saturating counter per
+ * row, and its frequency is the smallest of its counters. Counters are periodically halved so
+ * that keys which were popular long ago lose their advantage.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class FrequencySketch
+{
+    private static final int DEPTH = 4;
+    private static final int MAXIMUM_COUNT = 15;
+    private static final int MINIMUM_WIDTH = 256;
+    private static final int[] SEEDS = { 0x97cb3127, 0xb3a4f5d9, 0x6e8a5d3f, 0x2c1b3c6d };
+
+    private byte[] _table;
+    private int _mask;
+    private int _sampleSize;
+    private int _additions;
+
+    FrequencySketch()
+    {
+        resize(MINIMUM_WIDTH);
+    }
+
+    /**
+     * Grows the sketch to accurately track the specified number of keys. The frequencies
+     * counted so far are kept
+     */
+    void ensureCapacity(int expectedKeys)
+    {
+        int width = MINIMUM_WIDTH;
+
+        while (width < expectedKeys * 2 && width < (1 << 24)) {
+            width <<= 1;
+        }
+
+        if (width > _mask + 1) {
+            resize(width);
+        }
+    }
+
+    private void resize(int width)
+    {
+        byte[] table = new byte[width * DEPTH];
+
+        if (_table != null) {
+            int previousWidth = _mask + 1;
+
+            // a key's counter in the wider table shares the low bits of its index with the
+            // counter it had before, so every counter starts from the one it was split from
+            for (int row = 0; row < DEPTH; ++row) {
+                for (int i = 0; i < width; ++i) {
+                    table[row * width + i] = _table[row * previousWidth + (i & _mask)];
+                }
+            }
+        }
+
+        _table = table;
+        _mask = width - 1;
+        _sampleSize = width * 10;
+    }
+
+    private int indexOf(int hash, int row)
+    {
+        int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+
+        h ^= h >>> 16;
+
+        return row * (_mask + 1) + (h & _mask);
+    }
+
+    private static int spread(Object key)
+    {
+        int h = key.hashCode() * 0x85ebca6b;
+
+        return h ^ (h >>> 13);
+    }
+
+    int frequency(Object key)
+    {
+        int hash = spread(key);
+        int frequency = MAXIMUM_COUNT;
+
+        for (int row = 0; row < DEPTH; ++row) {
+            frequency = Math.min(frequency, _table[indexOf(hash, row)]);
+        }
+
+        return frequency;
+    }
+
+    void increment(Object key)
+    {
+        int hash = spread(key);
+        boolean added = false;
+
+        for (int row = 0; row < DEPTH; ++row) {
+            int index = indexOf(hash, row);
+
+            if (_table[index] < MAXIMUM_COUNT) {
+                ++_table[index];
+                added = true;
+            }
+        }
+
+        if (added && ++_additions >= _sampleSize) {
+            age();
+        }
+    }
+
+    private void age()
+    {
+        for (int i = 0; i < _table.length; ++i) {
+            _table[i] >>= 1;
+        }
+
+        _additions /= 2;
+    }
+}
@@ -0,0 +1,267 @@
+package com.github.mproberts.rxtools.map;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link SubjectMapMetrics} which accumulates counters and latency histograms in memory,
+ * suitable for periodic export to a monitoring system.
+ */
+public class InMemorySubjectMapMetrics extends SubjectMapMetrics
+{
+    /**
+     * A lock-free histogram which buckets recorded values by powers of two. Percentiles are
+     * reported as the upper bound of the bucket they fall in, so are accurate to within a
+     * factor of two.
+     */
+    public static final class Histogram
+    {
+        private static final int BUCKET_COUNT = 65;
+
+        private final AtomicLongArray _buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong _count = new AtomicLong();
+        private final AtomicLong _sum = new AtomicLong();
+        private final AtomicLong _max = new AtomicLong();
+
+        void record(long value)
+        {
+            if (value < 0) {
+                value = 0;
+            }
+
+            // bucket i holds values of exactly i significant bits
+            _buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            _count.incrementAndGet();
+            _sum.addAndGet(value);
+
+            long max;
+
+            do {
+                max = _max.get();
+            } while (value > max && !_max.compareAndSet(max, value));
+        }
+
+        /**
+         * @return the number of recorded values
+         */
+        public long count()
+        {
+            return _count.get();
+        }
+
+        /**
+         * @return the largest recorded value, or 0 if nothing has been recorded
+         */
+        public long max()
+        {
+            return _max.get();
+        }
+
+        /**
+         * @return the mean of the recorded values, or 0 if nothing has been recorded
+         */
+        public double mean()
+        {
+            long count = _count.get();
+
+            return count == 0 ? 0 : (double) _sum.get() / count;
+        }
+
+        /**
+         * Returns an upper bound for the specified percentile of the recorded values
+         *
+         * @param percentile the percentile, between 0 and 100
+         *
+         * @return the upper bound of the bucket containing the percentile, or 0 if nothing
+         * has been recorded
+         */
+        public long percentile(double percentile)
+        {
+            long count = _count.get();
+
+            if (count == 0) {
+                return 0;
+            }
+
+            long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                seen += _buckets.get(i);
+
+                if (seen >= target) {
+                    long upperBound = i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+
+                    return Math.min(upperBound, _max.get());
+                }
+            }
+
+            return _max.get();
+        }
+    }
+
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _attaches = new AtomicLong();
+    private final AtomicLong _detaches = new AtomicLong();
+    private final AtomicLong _boundKeys = new AtomicLong();
+    private final AtomicLong _emissions = new AtomicLong();
+    private final AtomicLong _droppedEmissions = new AtomicLong();
+    private final AtomicLong _faultErrors = new AtomicLong();
+    private final Histogram _faultLatency = new Histogram();
+    private final Histogram _faultBatchSize = new Histogram();
+    private final Histogram _writeLockWait = new Histogram();
+    private final Histogram _writeLockHold = new Histogram();
+
+    @Override
+    public void onGet(boolean hit)
+    {
+        (hit ? _hits : _misses).incrementAndGet();
+    }
+
+    @Override
+    public void onGetAll(int keyCount, int missCount)
+    {
+        _hits.addAndGet(keyCount - missCount);
+        _misses.addAndGet(missCount);
+    }
+
+    @Override
+    public void onWriteLockWait(long waitNanos)
+    {
+        _writeLockWait.record(waitNanos);
+    }
+
+    @Override
+    public void onWriteLockHold(long holdNanos)
+    {
+        _writeLockHold.record(holdNanos);
+    }
+
+    @Override
+    public void onAttach()
+    {
+        _attaches.incrementAndGet();
+        _boundKeys.incrementAndGet();
+    }
+
+    @Override
+    public void onDetach()
+    {
+        _detaches.incrementAndGet();
+        _boundKeys.decrementAndGet();
+    }
+
+    @Override
+    public void onEmit(boolean bound)
+    {
+        (bound ? _emissions : _droppedEmissions).incrementAndGet();
+    }
+
+    @Override
+    public void onFault(int keyCount, long durationNanos, Throwable error)
+    {
+        if (error != null) {
+            _faultErrors.incrementAndGet();
+        }
+
+        _faultLatency.record(durationNanos);
+        _faultBatchSize.record(keyCount);
+    }
+
+    /**
+     * @return the number of key lookups served from the cache
+     */
+    public long hits()
+    {
+        return _hits.get();
+    }
+
+    /**
+     * @return the number of key lookups which escalated to the write lock
+     */
+    public long misses()
+    {
+        return _misses.get();
+    }
+
+    /**
+     * @return the number of times a key has been bound
+     */
+    public long attaches()
+    {
+        return _attaches.get();
+    }
+
+    /**
+     * @return the number of times a key has been unbound
+     */
+    public long detaches()
+    {
+        return _detaches.get();
+    }
+
+    /**
+     * @return the number of keys currently bound
+     */
+    public long boundKeys()
+    {
+        return _boundKeys.get();
+    }
+
+    /**
+     * @return the number of emissions delivered to a bound key
+     */
+    public long emissions()
+    {
+        return _emissions.get();
+    }
+
+    /**
+     * @return the number of emissions dropped because the key was not bound
+     */
+    public long droppedEmissions()
+    {
+        return _droppedEmissions.get();
+    }
+
+    /**
+     * @return the number of faults which failed
+     */
+    public long faultErrors()
+    {
+        return _faultErrors.get();
+    }
+
+    /**
+     * @return the latency of faults, in nanoseconds
+     */
+    public Histogram faultLatency()
+    {
+        return _faultLatency;
+    }
+
+    /**
+     * @return the number of keys in each fault
+     */
+    public Histogram faultBatchSize()
+    {
+        return _faultBatchSize;
+    }
+
+    /**
+     * @return the time spent waiting for the write lock, in nanoseconds
+     */
+    public Histogram writeLockWait()
+    {
+        return _writeLockWait;
+    }
+
+    /**
+     * @return the time the write lock was held by lookups, in nanoseconds
+     */
+    public Histogram writeLockHold()
+    {
+        return _writeLockHold;
+    }
+}
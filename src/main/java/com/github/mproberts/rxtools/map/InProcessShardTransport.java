@@ -0,0 +1,66 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link ShardTransport} which routes operations to maps registered within the same process,
+ * standing in for a network transport when testing a set of sharded nodes
+ *
+ * @param <K> key type for the collection
+ * @param <V> value type for the emissions from the observables of the collection
+ */
+public class InProcessShardTransport<K, V> implements ShardTransport<K, V>
+{
+    private final ConcurrentHashMap<String, SubjectMap<K, V>> _nodes = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the map serving the keys owned by the specified node
+     *
+     * @param nodeId the id of the node
+     * @param map the map holding the keys owned by the node
+     */
+    public void register(String nodeId, SubjectMap<K, V> map)
+    {
+        _nodes.put(nodeId, map);
+    }
+
+    /**
+     * Removes the node, subsequent operations routed to the node will fail
+     *
+     * @param nodeId the id of the node
+     */
+    public void unregister(String nodeId)
+    {
+        _nodes.remove(nodeId);
+    }
+
+    private SubjectMap<K, V> node(String nodeId)
+    {
+        SubjectMap<K, V> map = _nodes.get(nodeId);
+
+        if (map == null) {
+            throw new IllegalStateException("Unknown node " + nodeId);
+        }
+
+        return map;
+    }
+
+    @Override
+    public Flowable<V> get(String nodeId, K key)
+    {
+        try {
+            return node(nodeId).get(key);
+        }
+        catch (IllegalStateException e) {
+            return Flowable.error(e);
+        }
+    }
+
+    @Override
+    public void onNext(String nodeId, K key, V value)
+    {
+        node(nodeId).onNext(key, value);
+    }
+}
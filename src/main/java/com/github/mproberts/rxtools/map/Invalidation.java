@@ -0,0 +1,88 @@
+package com.github.mproberts.rxtools.map;
+
+/**
+ * A single change to a key published through an {@link InvalidationBus}. An invalidation either
+ * requests that nodes with the key bound fault it again, or carries the new value to be pushed
+ * directly to those nodes.
+ *
+ * @param <K> key type for the invalidated map
+ * @param <V> value type for the invalidated map
+ */
+public final class Invalidation<K, V>
+{
+    /**
+     * The key which has changed
+     */
+    public final K key;
+
+    /**
+     * The new value for the key, or null if the key should be faulted
+     */
+    public final V value;
+
+    private Invalidation(K key, V value)
+    {
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * @param key the key which has changed
+     * @param <K> key type for the invalidated map
+     * @param <V> value type for the invalidated map
+     * @return an invalidation requesting that the key be faulted where bound
+     */
+    public static <K, V> Invalidation<K, V> fault(K key)
+    {
+        return new Invalidation<>(key, null);
+    }
+
+    /**
+     * @param key the key which has changed
+     * @param value the new value for the key
+     * @param <K> key type for the invalidated map
+     * @param <V> value type for the invalidated map
+     * @return an invalidation pushing the value to the key where bound
+     */
+    public static <K, V> Invalidation<K, V> push(K key, V value)
+    {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        return new Invalidation<>(key, value);
+    }
+
+    /**
+     * @return true if the invalidation carries a value to push rather than requesting a fault
+     */
+    public boolean isPush()
+    {
+        return value != null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return isPush() ? "push(" + key + " -> " + value + ")" : "fault(" + key + ")";
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof Invalidation)) {
+            return false;
+        }
+
+        Invalidation<?, ?> other = (Invalidation<?, ?>) obj;
+
+        return (key == null ? other.key == null : key.equals(other.key))
+                && (value == null ? other.value == null : value.equals(other.value));
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (key == null ? 0 : key.hashCode()) * 31 + (value == null ? 0 : value.hashCode());
+    }
+}
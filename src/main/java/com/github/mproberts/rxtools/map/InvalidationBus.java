@@ -0,0 +1,188 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Predicate;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Propagates changes to keys between the {@link SubjectMap SubjectMaps} of many nodes. A change
+ * published on any node is delivered to every connected map, which will fault the key, or
+ * push the new value, only if the key is bound on that node.
+ * <p>
+ * Published changes are collected for the duration of a tick and sent as a single batch,
+ * keeping only the last change for each key. Received faults are issued together so that a
+ * multi-fault handler is called once per batch.
+ *
+ * @param <K> key type for the invalidated map
+ * @param <V> value type for the invalidated map
+ */
+public class InvalidationBus<K, V> implements Disposable
+{
+    private final InvalidationTransport<K, V> _transport;
+    private final FlowableProcessor<Invalidation<K, V>> _published;
+    private final CompositeDisposable _subscriptions;
+
+    /**
+     * Constructs a bus which sends the changes published during each tick as a single batch
+     *
+     * @param transport the transport used to send and receive batches
+     * @param tick the period of time over which published changes are batched
+     * @param unit the unit of time which applies to the {@code tick} argument
+     * @param scheduler the {@link Scheduler} to use when determining the end of a tick
+     */
+    public InvalidationBus(final InvalidationTransport<K, V> transport, long tick, TimeUnit unit, Scheduler scheduler)
+    {
+        _transport = transport;
+        _published = PublishProcessor.<Invalidation<K, V>>create().toSerialized();
+        _subscriptions = new CompositeDisposable();
+
+        _subscriptions.add(_published
+                .buffer(tick, unit, scheduler)
+                .filter(new Predicate<List<Invalidation<K, V>>>() {
+                    @Override
+                    public boolean test(List<Invalidation<K, V>> invalidations)
+                    {
+                        return !invalidations.isEmpty();
+                    }
+                })
+                .subscribe(new Consumer<List<Invalidation<K, V>>>() {
+                    @Override
+                    public void accept(List<Invalidation<K, V>> invalidations)
+                    {
+                        try {
+                            transport.send(collapse(invalidations));
+                        }
+                        catch (Exception e) {
+                            // the batch is lost, but later batches must still be sent
+                            RxJavaPlugins.onError(e);
+                        }
+                    }
+                }, new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable)
+                    {
+                        RxJavaPlugins.onError(throwable);
+                    }
+                }));
+    }
+
+    /**
+     * Keeps only the last invalidation for each key, preserving the order in which keys first appeared
+     */
+    private static <K, V> List<Invalidation<K, V>> collapse(List<Invalidation<K, V>> invalidations)
+    {
+        LinkedHashMap<K, Invalidation<K, V>> latest = new LinkedHashMap<>(invalidations.size());
+
+        for (Invalidation<K, V> invalidation : invalidations) {
+            latest.put(invalidation.key, invalidation);
+        }
+
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * Publishes a change to the key, requesting that all nodes with the key bound fault it
+     *
+     * @param key the key which has changed
+     */
+    public void publish(K key)
+    {
+        _published.onNext(Invalidation.<K, V>fault(key));
+    }
+
+    /**
+     * Publishes a new value for the key, which will be pushed to all nodes with the key bound
+     *
+     * @param key the key which has changed
+     * @param value the new value for the key
+     */
+    public void publish(K key, V value)
+    {
+        _published.onNext(Invalidation.push(key, value));
+    }
+
+    /**
+     * Applies all batches received by the transport to the supplied map until the returned
+     * disposable is disposed
+     *
+     * @param map the map to which received changes will be applied
+     *
+     * @return a disposable which disconnects the map from the bus
+     */
+    public Disposable connect(final SubjectMap<K, V> map)
+    {
+        Disposable subscription = _transport.receive()
+                .subscribe(new Consumer<List<Invalidation<K, V>>>() {
+                    @Override
+                    public void accept(List<Invalidation<K, V>> invalidations)
+                    {
+                        apply(map, collapse(invalidations));
+                    }
+                }, new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable)
+                    {
+                        RxJavaPlugins.onError(throwable);
+                    }
+                });
+
+        _subscriptions.add(subscription);
+
+        return subscription;
+    }
+
+    private void apply(SubjectMap<K, V> map, List<Invalidation<K, V>> invalidations)
+    {
+        List<K> faultedKeys = new ArrayList<>(invalidations.size());
+
+        for (Invalidation<K, V> invalidation : invalidations) {
+            if (invalidation.isPush()) {
+                // pushes to keys which are not bound are ignored by the map
+                map.onNext(invalidation.key, invalidation.value);
+            }
+            else {
+                faultedKeys.add(invalidation.key);
+            }
+        }
+
+        if (faultedKeys.isEmpty()) {
+            return;
+        }
+
+        map.faultKeysIfBound(faultedKeys).subscribe(new Action() {
+            @Override
+            public void run()
+            {
+            }
+        }, new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable)
+            {
+                RxJavaPlugins.onError(throwable);
+            }
+        });
+    }
+
+    @Override
+    public void dispose()
+    {
+        _subscriptions.dispose();
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return _subscriptions.isDisposed();
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+
+import java.util.List;
+
+/**
+ * Carries batches of {@link Invalidation invalidations} between the nodes of an
+ * {@link InvalidationBus}. Every batch sent by any node is expected to be received by all
+ * nodes, including the sender.
+ *
+ * @param <K> key type for the invalidated map
+ * @param <V> value type for the invalidated map
+ */
+public interface InvalidationTransport<K, V>
+{
+    /**
+     * Sends a batch of invalidations to all nodes
+     *
+     * @param invalidations the batch to send
+     * @throws Exception if the batch could not be sent
+     */
+    void send(List<Invalidation<K, V>> invalidations) throws Exception;
+
+    /**
+     * @return a stream of the batches of invalidations received from all nodes
+     */
+    Flowable<List<Invalidation<K, V>>> receive();
+}
@@ -0,0 +1,23 @@
+package com.github.mproberts.rxtools.map;
+
+/**
+ * Calculates the hash which places a key on the consistent hash ring of a
+ * {@link ShardedSubjectMap}. Every node must calculate the same hash for the same key, so the
+ * hash must not depend on the process, as {@link Object#hashCode()} does for enums and for
+ * objects which do not override it.
+ * <p>
+ * Implementations must be safe to call from multiple threads.
+ *
+ * @param <K> key type for the collection
+ */
+public interface KeyHasher<K>
+{
+    /**
+     * Returns the hash of the key, which must be the same in every process
+     *
+     * @param key the key to be hashed
+     *
+     * @return the hash of the key
+     */
+    int hash(K key);
+}
@@ -0,0 +1,124 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Completable;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * A secondary index over the bound keys of a {@link SubjectMap}, grouping keys by a value
+ * extracted from each key. The index is maintained as keys are attached and detached, allowing
+ * a whole group to be invalidated in time proportional to the size of the group rather than
+ * the number of bound keys.
+ *
+ * @param <K> key type of the indexed map
+ * @param <G> group type extracted from each key
+ */
+public final class KeyIndex<K, G>
+{
+    private final SubjectMap<K, ?> _map;
+    private final Function<K, G> _groupExtractor;
+    private final HashMap<G, Set<K>> _groups;
+
+    KeyIndex(SubjectMap<K, ?> map, Function<K, G> groupExtractor)
+    {
+        _map = map;
+        _groupExtractor = groupExtractor;
+        _groups = new HashMap<>();
+    }
+
+    private G groupOf(K key)
+    {
+        try {
+            return _groupExtractor.apply(key);
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    synchronized void add(K key)
+    {
+        G group = groupOf(key);
+        Set<K> keys = _groups.get(group);
+
+        if (keys == null) {
+            keys = new HashSet<>();
+
+            _groups.put(group, keys);
+        }
+
+        keys.add(key);
+    }
+
+    synchronized void remove(K key)
+    {
+        G group = groupOf(key);
+        Set<K> keys = _groups.get(group);
+
+        if (keys != null) {
+            keys.remove(key);
+
+            if (keys.isEmpty()) {
+                _groups.remove(group);
+            }
+        }
+    }
+
+    synchronized void clear()
+    {
+        _groups.clear();
+    }
+
+    /**
+     * Returns the keys belonging to the specified group which are currently bound
+     *
+     * @param group the group whose keys are to be returned
+     *
+     * @return an immutable copy of the bound keys in the group
+     */
+    public synchronized Set<K> boundKeys(G group)
+    {
+        Set<K> keys = _groups.get(group);
+
+        if (keys == null) {
+            return Collections.emptySet();
+        }
+
+        return Collections.unmodifiableSet(new HashSet<>(keys));
+    }
+
+    /**
+     * Re-emits a fault for all keys belonging to the specified group which are bound. Values
+     * retained for unbound keys of the group are discarded, so they are faulted when bound
+     *
+     * @param group the group whose keys should be faulted
+     *
+     * @return a completable which will fault the keys of the group when subscribed
+     */
+    public Completable faultIfBound(final G group)
+    {
+        return Completable.defer(new Callable<Completable>() {
+            @Override
+            public Completable call()
+            {
+                List<K> keys = new ArrayList<>(boundKeys(group));
+
+                return _map.faultKeysIfBound(keys, new Predicate<K>() {
+                    @Override
+                    public boolean test(K key)
+                    {
+                        return group.equals(groupOf(key));
+                    }
+                });
+            }
+        });
+    }
+}
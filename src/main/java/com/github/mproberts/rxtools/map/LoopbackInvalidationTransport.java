@@ -0,0 +1,32 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+
+import java.util.List;
+
+/**
+ * An in-memory {@link InvalidationTransport} which delivers every batch sent to all receivers
+ * within the same process. Sharing a single loopback transport between several buses
+ * simulates a set of nodes, which is useful for testing.
+ *
+ * @param <K> key type for the invalidated map
+ * @param <V> value type for the invalidated map
+ */
+public class LoopbackInvalidationTransport<K, V> implements InvalidationTransport<K, V>
+{
+    private final FlowableProcessor<List<Invalidation<K, V>>> _batches = PublishProcessor.<List<Invalidation<K, V>>>create().toSerialized();
+
+    @Override
+    public void send(List<Invalidation<K, V>> invalidations)
+    {
+        _batches.onNext(invalidations);
+    }
+
+    @Override
+    public Flowable<List<Invalidation<K, V>>> receive()
+    {
+        return _batches.onBackpressureBuffer();
+    }
+}
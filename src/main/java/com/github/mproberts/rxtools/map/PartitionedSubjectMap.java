@@ -0,0 +1,412 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.processors.BehaviorProcessor;
+import io.reactivex.schedulers.Schedulers;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A variant of the {@link SubjectMap} in which keys are hashed onto a fixed number of partitions,
+ * each owned by a single-threaded event loop. All state for a key, including its subscriber
+ * count, its subject and its outstanding fault, is only ever touched by the loop which owns the
+ * key's partition, so no locks are required and throughput scales with the number of partitions.
+ * <p>
+ * Operations may be called from any thread, they are queued onto the owning loop and applied
+ * in order. Emissions, errors and fault completions are delivered to subscribers on the owning
+ * loop, subscribers should avoid blocking work as it will stall the whole partition.
+ * <p>
+ * Unlike the SubjectMap, subjects are strongly retained only while subscribed and are released
+ * as soon as the last subscriber unsubscribes.
+ *
+ * @param <K> key type for the collection
+ * @param <V> value type for the emissions from the observables of the collection
+ */
+public class PartitionedSubjectMap<K, V> implements Disposable
+{
+    private final List<Partition> _partitions;
+    private final List<ExecutorService> _ownedExecutors;
+
+    private volatile Function<K, Single<V>> _faultHandler;
+
+    private class Entry
+    {
+        final BehaviorProcessor<V> processor = BehaviorProcessor.create();
+        int attachmentCount;
+        Disposable fault;
+    }
+
+    private class Partition
+    {
+        private final Scheduler.Worker _worker;
+        private final HashMap<K, Entry> _entries = new HashMap<>();
+
+        Partition(Scheduler scheduler)
+        {
+            _worker = scheduler.createWorker();
+        }
+
+        void execute(Runnable runnable)
+        {
+            _worker.schedule(runnable);
+        }
+
+        void attach(final K key, final FlowableEmitter<V> emitter)
+        {
+            if (emitter.isCancelled()) {
+                return;
+            }
+
+            Entry entry = _entries.get(key);
+            boolean isFirstAttachment = entry == null;
+
+            if (isFirstAttachment) {
+                entry = new Entry();
+
+                _entries.put(key, entry);
+            }
+
+            final Entry attachedEntry = entry;
+            final Subscription[] subscription = new Subscription[1];
+
+            ++attachedEntry.attachmentCount;
+
+            attachedEntry.processor.subscribe(new FlowableSubscriber<V>() {
+                @Override
+                public void onSubscribe(Subscription s)
+                {
+                    subscription[0] = s;
+
+                    s.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(V v)
+                {
+                    emitter.onNext(v);
+                }
+
+                @Override
+                public void onError(Throwable t)
+                {
+                    emitter.onError(t);
+                }
+
+                @Override
+                public void onComplete()
+                {
+                    emitter.onComplete();
+                }
+            });
+
+            emitter.setCancellable(new Cancellable() {
+                @Override
+                public void cancel()
+                {
+                    execute(new Runnable() {
+                        @Override
+                        public void run()
+                        {
+                            subscription[0].cancel();
+
+                            detach(key, attachedEntry);
+                        }
+                    });
+                }
+            });
+
+            if (isFirstAttachment) {
+                fault(key, attachedEntry);
+            }
+        }
+
+        private void detach(K key, Entry entry)
+        {
+            if (--entry.attachmentCount > 0) {
+                return;
+            }
+
+            if (entry.fault != null) {
+                entry.fault.dispose();
+            }
+
+            // the entry may already have been replaced following an error
+            if (_entries.get(key) == entry) {
+                _entries.remove(key);
+            }
+        }
+
+        private void fault(final K key, final Entry entry)
+        {
+            Function<K, Single<V>> faultHandler = _faultHandler;
+
+            if (faultHandler == null) {
+                return;
+            }
+
+            Single<V> fault;
+
+            try {
+                fault = faultHandler.apply(key);
+            }
+            catch (Exception e) {
+                error(key, e);
+                return;
+            }
+
+            // the result is handed back to the partition's own worker, the entries must only
+            // ever be touched by the partition
+            entry.fault = fault.subscribe(new Consumer<V>() {
+                @Override
+                public void accept(final V value)
+                {
+                    execute(new Runnable() {
+                        @Override
+                        public void run()
+                        {
+                            if (_entries.get(key) == entry) {
+                                entry.processor.onNext(value);
+                            }
+                        }
+                    });
+                }
+            }, new Consumer<Throwable>() {
+                @Override
+                public void accept(final Throwable throwable)
+                {
+                    execute(new Runnable() {
+                        @Override
+                        public void run()
+                        {
+                            if (_entries.get(key) == entry) {
+                                error(key, throwable);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+
+        void emit(K key, V value)
+        {
+            Entry entry = _entries.get(key);
+
+            if (entry != null) {
+                entry.processor.onNext(value);
+            }
+        }
+
+        void error(K key, Throwable error)
+        {
+            Entry entry = _entries.remove(key);
+
+            if (entry != null) {
+                entry.processor.onError(error);
+            }
+        }
+
+        int size()
+        {
+            return _entries.size();
+        }
+    }
+
+    /**
+     * Constructs a new, empty map with the specified number of partitions, each owned by a
+     * dedicated daemon thread
+     *
+     * @param partitionCount the number of partitions
+     */
+    public PartitionedSubjectMap(int partitionCount)
+    {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("partitionCount must be positive");
+        }
+
+        List<Scheduler> schedulers = new ArrayList<>(partitionCount);
+
+        _ownedExecutors = new ArrayList<>(partitionCount);
+
+        for (int i = 0; i < partitionCount; ++i) {
+            final String name = "SubjectMapPartition-" + i;
+            ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, name);
+
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+
+            _ownedExecutors.add(executor);
+            schedulers.add(Schedulers.from(executor));
+        }
+
+        _partitions = createPartitions(schedulers);
+    }
+
+    /**
+     * Constructs a new, empty map with one partition for each of the supplied schedulers. Each
+     * partition performs its work on a single worker of its scheduler
+     *
+     * @param schedulers the schedulers owning each partition
+     */
+    public PartitionedSubjectMap(List<Scheduler> schedulers)
+    {
+        if (schedulers.isEmpty()) {
+            throw new IllegalArgumentException("At least one scheduler is required");
+        }
+
+        _ownedExecutors = new ArrayList<>();
+        _partitions = createPartitions(schedulers);
+    }
+
+    private List<Partition> createPartitions(List<Scheduler> schedulers)
+    {
+        List<Partition> partitions = new ArrayList<>(schedulers.size());
+
+        for (Scheduler scheduler : schedulers) {
+            partitions.add(new Partition(scheduler));
+        }
+
+        return partitions;
+    }
+
+    private Partition partitionFor(K key)
+    {
+        int hash = key.hashCode();
+
+        hash ^= hash >>> 16;
+
+        return _partitions.get((hash & 0x7fffffff) % _partitions.size());
+    }
+
+    public void setFaultHandler(Function<K, Single<V>> faultHandler)
+    {
+        _faultHandler = faultHandler;
+    }
+
+    /**
+     * Returns an observable associated with the specified key. The observable will
+     * request that a value be supplied when the first subscriber is bound
+     *
+     * @param key the key whose associated observable is to be returned
+     *
+     * @return an observable which, when subscribed, will be bound to the specified key
+     * and will receive all emissions and errors for the specified key
+     */
+    public Flowable<V> get(final K key)
+    {
+        final Partition partition = partitionFor(key);
+
+        return Flowable.create(new FlowableOnSubscribe<V>() {
+            @Override
+            public void subscribe(final FlowableEmitter<V> emitter)
+            {
+                partition.execute(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        partition.attach(key, emitter);
+                    }
+                });
+            }
+        }, BackpressureStrategy.LATEST);
+    }
+
+    /**
+     * Emits the specified value from the observable associated with the specified key
+     * if there is an associated observable. If no observable has subscribed to the key,
+     * this operation is a noop
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be send to the specified observable
+     */
+    public void onNext(final K key, final V value)
+    {
+        final Partition partition = partitionFor(key);
+
+        partition.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                partition.emit(key, value);
+            }
+        });
+    }
+
+    /**
+     * Emits the error from the observable associated with the specified key. After the
+     * error is emitted, the key will be unbound and subsequent subscriptions will fault
+     * the value in again
+     *
+     * @param key key with which the specified value is to be associated
+     * @param error exception to be sent to the specified observable
+     */
+    public void onError(final K key, final Throwable error)
+    {
+        final Partition partition = partitionFor(key);
+
+        partition.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                partition.error(key, error);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of keys currently bound in each partition. The counts are read
+     * without synchronization and are only approximate while the map is in use
+     *
+     * @return the number of bound keys in each partition
+     */
+    public int[] boundKeyCounts()
+    {
+        int[] counts = new int[_partitions.size()];
+
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = _partitions.get(i).size();
+        }
+
+        return counts;
+    }
+
+    @Override
+    public void dispose()
+    {
+        for (Partition partition : _partitions) {
+            partition._worker.dispose();
+        }
+
+        for (ExecutorService executor : _ownedExecutors) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return _partitions.get(0)._worker.isDisposed();
+    }
+}
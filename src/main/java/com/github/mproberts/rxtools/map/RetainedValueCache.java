@@ -0,0 +1,262 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.functions.Predicate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Holds the last values of keys which are no longer bound so that they can be served without a
+ * fault if the key is bound again, up to a maximum total weight.
+ * <p>
+ * Eviction follows the W-TinyLFU design: values enter a small window ordered by recency, and
+ * values leaving the window are only admitted to the main region if they have been accessed
+ * more often than the least recently used value they would displace. Frequencies are tracked
+ * for all accessed keys, including those not retained, by a {@link FrequencySketch}. Between
+ * values of equal frequency, the heavier value is evicted.
+ *
+ * @param <K> key type for the collection
+ * @param <V> value type for the collection
+ */
+final class RetainedValueCache<K, V>
+{
+    private static final int WINDOW_PERCENT = 1;
+
+    private final class Node
+    {
+        final K key;
+        V value;
+        long weight;
+
+        Node(K key, V value, long weight)
+        {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final Weigher<K, V> _weigher;
+    private final long _maximumWeight;
+    private final long _windowMaximumWeight;
+    private final long _mainMaximumWeight;
+
+    // both regions are kept in insertion order, so the first entry is the least recently used
+    private final LinkedHashMap<K, Node> _window = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node> _main = new LinkedHashMap<>();
+    private final FrequencySketch _sketch = new FrequencySketch();
+
+    private long _windowWeight;
+    private long _mainWeight;
+
+    RetainedValueCache(long maximumWeight, Weigher<K, V> weigher)
+    {
+        _weigher = weigher;
+        _maximumWeight = maximumWeight;
+        _windowMaximumWeight = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+        _mainMaximumWeight = Math.max(0, maximumWeight - _windowMaximumWeight);
+    }
+
+    /**
+     * Removes and returns the retained value for the key, recording an access of the key
+     * whether or not a value was retained
+     */
+    synchronized V take(K key)
+    {
+        _sketch.increment(key);
+
+        Node node = removeNode(key);
+
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Retains the value for the key, evicting other values if the maximum weight is exceeded
+     */
+    synchronized void put(K key, V value)
+    {
+        removeNode(key);
+
+        long weight = _weigher.weigh(key, value);
+
+        if (weight > _maximumWeight) {
+            return;
+        }
+
+        _window.put(key, new Node(key, value, weight));
+        _windowWeight += weight;
+
+        _sketch.ensureCapacity(_window.size() + _main.size());
+
+        evict();
+    }
+
+    synchronized boolean contains(K key)
+    {
+        return _window.containsKey(key) || _main.containsKey(key);
+    }
+
+    /**
+     * Replaces the retained value for the key without changing its position, if a value is
+     * retained
+     */
+    synchronized void replace(K key, V value)
+    {
+        Node node = _window.get(key);
+        boolean inWindow = node != null;
+
+        if (!inWindow) {
+            node = _main.get(key);
+        }
+
+        if (node == null) {
+            return;
+        }
+
+        long weight = _weigher.weigh(key, value);
+
+        if (weight > _maximumWeight) {
+            removeNode(key);
+            return;
+        }
+
+        if (inWindow) {
+            _windowWeight += weight - node.weight;
+        }
+        else {
+            _mainWeight += weight - node.weight;
+        }
+
+        node.value = value;
+        node.weight = weight;
+
+        evict();
+    }
+
+    synchronized void remove(K key)
+    {
+        removeNode(key);
+    }
+
+    synchronized void removeIf(Predicate<K> predicate) throws Exception
+    {
+        removeIf(_window, predicate);
+        removeIf(_main, predicate);
+    }
+
+    private void removeIf(LinkedHashMap<K, Node> region, Predicate<K> predicate) throws Exception
+    {
+        Iterator<Node> iterator = region.values().iterator();
+
+        while (iterator.hasNext()) {
+            Node node = iterator.next();
+
+            if (predicate.test(node.key)) {
+                iterator.remove();
+
+                if (region == _window) {
+                    _windowWeight -= node.weight;
+                }
+                else {
+                    _mainWeight -= node.weight;
+                }
+            }
+        }
+    }
+
+    synchronized void clear()
+    {
+        _window.clear();
+        _main.clear();
+        _windowWeight = 0;
+        _mainWeight = 0;
+    }
+
+    synchronized int size()
+    {
+        return _window.size() + _main.size();
+    }
+
+    synchronized long weight()
+    {
+        return _windowWeight + _mainWeight;
+    }
+
+    private Node removeNode(K key)
+    {
+        Node node = _window.remove(key);
+
+        if (node != null) {
+            _windowWeight -= node.weight;
+            return node;
+        }
+
+        node = _main.remove(key);
+
+        if (node != null) {
+            _mainWeight -= node.weight;
+        }
+
+        return node;
+    }
+
+    private void evict()
+    {
+        // values overflowing the window compete with the main region's victims for admission
+        while (_windowWeight > _windowMaximumWeight) {
+            Node candidate = _window.values().iterator().next();
+
+            _window.remove(candidate.key);
+            _windowWeight -= candidate.weight;
+
+            admit(candidate);
+        }
+
+        // a replaced value may have grown the main region beyond its share
+        while (_mainWeight > _mainMaximumWeight) {
+            Node victim = _main.values().iterator().next();
+
+            _main.remove(victim.key);
+            _mainWeight -= victim.weight;
+        }
+    }
+
+    private void admit(Node candidate)
+    {
+        if (candidate.weight > _mainMaximumWeight) {
+            return;
+        }
+
+        int candidateFrequency = _sketch.frequency(candidate.key);
+        List<Node> victims = new ArrayList<>();
+        Iterator<Node> iterator = _main.values().iterator();
+        long freedWeight = 0;
+
+        // nothing is evicted until the candidate has won against every value it would displace
+        while (_mainWeight - freedWeight + candidate.weight > _mainMaximumWeight) {
+            Node victim = iterator.next();
+            int victimFrequency = _sketch.frequency(victim.key);
+
+            boolean evictVictim = candidateFrequency > victimFrequency
+                    || (candidateFrequency == victimFrequency && victim.weight >= candidate.weight);
+
+            if (!evictVictim) {
+                return;
+            }
+
+            victims.add(victim);
+            freedWeight += victim.weight;
+        }
+
+        for (Node victim : victims) {
+            _main.remove(victim.key);
+        }
+
+        _mainWeight -= freedWeight;
+
+        _main.put(candidate.key, candidate);
+        _mainWeight += candidate.weight;
+    }
+}
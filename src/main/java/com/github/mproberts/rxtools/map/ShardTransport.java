@@ -0,0 +1,32 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+
+/**
+ * Proxies the operations of a {@link ShardedSubjectMap} to the node which owns a key
+ *
+ * @param <K> key type for the collection
+ * @param <V> value type for the emissions from the observables of the collection
+ */
+public interface ShardTransport<K, V>
+{
+    /**
+     * Returns an observable bound to the key on the specified node. The key should be attached
+     * on the remote node for as long as the observable is subscribed
+     *
+     * @param nodeId the id of the node which owns the key
+     * @param key the key whose associated observable is to be returned
+     *
+     * @return an observable bound to the key on the owning node
+     */
+    Flowable<V> get(String nodeId, K key);
+
+    /**
+     * Emits the value for the key on the specified node
+     *
+     * @param nodeId the id of the node which owns the key
+     * @param key key with which the specified value is to be associated
+     * @param value value to be send to the specified observable
+     */
+    void onNext(String nodeId, K key, V value);
+}
@@ -0,0 +1,182 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Function;
+import io.reactivex.processors.BehaviorProcessor;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A facade over the {@link SubjectMap SubjectMaps} of a set of nodes which assigns each key to
+ * an owning node by consistent hashing. Keys owned by the local node are served by the local
+ * map while all other keys are proxied to their owner through a {@link ShardTransport}, so
+ * each node only retains the keys it owns.
+ * <p>
+ * When the set of member nodes changes, bound keys whose owner has changed are transparently
+ * re-bound to their new owner.
+ * <p>
+ * Every node must agree on the owner of each key, so keys are placed on the ring by a
+ * {@link KeyHasher} rather than by their hash code, which may differ between processes. The
+ * default hasher hashes enums by name and all other keys by {@link Object#hashCode()}, so it is
+ * only suitable for keys such as strings, boxed primitives and enums, or for keys whose hash
+ * code is calculated from their contents alone.
+ *
+ * @param <K> key type for the collection
+ * @param <V> value type for the emissions from the observables of the collection
+ */
+public class ShardedSubjectMap<K, V>
+{
+    private static final int DEFAULT_REPLICAS = 128;
+
+    static final KeyHasher<Object> DEFAULT_KEY_HASHER = new KeyHasher<Object>() {
+        @Override
+        public int hash(Object key)
+        {
+            if (key instanceof Enum) {
+                Enum<?> value = (Enum<?>) key;
+
+                // the hash code of an enum is its identity, which differs between processes
+                return value.getDeclaringClass().getName().hashCode() * 31 + value.name().hashCode();
+            }
+
+            return key.hashCode();
+        }
+    };
+
+    private final String _localNodeId;
+    private final SubjectMap<K, V> _local;
+    private final ShardTransport<K, V> _transport;
+    private final int _replicas;
+    private final KeyHasher<? super K> _keyHasher;
+    private final BehaviorProcessor<ConsistentHashRing> _ring;
+    private final DerivedSubjectMap<K, V> _routed;
+
+    /**
+     * Constructs a sharded map for the local node
+     *
+     * @param localNodeId the id of the local node, which must be one of the members
+     * @param local the map holding the keys owned by the local node
+     * @param transport the transport used to reach keys owned by other nodes
+     * @param members the ids of all member nodes
+     */
+    public ShardedSubjectMap(String localNodeId, SubjectMap<K, V> local, ShardTransport<K, V> transport, Collection<String> members)
+    {
+        this(localNodeId, local, transport, members, DEFAULT_REPLICAS);
+    }
+
+    /**
+     * Constructs a sharded map for the local node
+     *
+     * @param localNodeId the id of the local node, which must be one of the members
+     * @param local the map holding the keys owned by the local node
+     * @param transport the transport used to reach keys owned by other nodes
+     * @param members the ids of all member nodes
+     * @param replicas the number of points on the hash ring for each node
+     */
+    public ShardedSubjectMap(String localNodeId, SubjectMap<K, V> local, ShardTransport<K, V> transport, Collection<String> members, int replicas)
+    {
+        this(localNodeId, local, transport, members, replicas, DEFAULT_KEY_HASHER);
+    }
+
+    /**
+     * Constructs a sharded map for the local node
+     *
+     * @param localNodeId the id of the local node, which must be one of the members
+     * @param local the map holding the keys owned by the local node
+     * @param transport the transport used to reach keys owned by other nodes
+     * @param members the ids of all member nodes
+     * @param replicas the number of points on the hash ring for each node
+     * @param keyHasher the hasher placing keys on the ring, which must be the same on every node
+     */
+    public ShardedSubjectMap(String localNodeId, SubjectMap<K, V> local, ShardTransport<K, V> transport, Collection<String> members, int replicas, KeyHasher<? super K> keyHasher)
+    {
+        _localNodeId = localNodeId;
+        _local = local;
+        _transport = transport;
+        _replicas = replicas;
+        _keyHasher = keyHasher;
+        _ring = BehaviorProcessor.createDefault(new ConsistentHashRing(new ArrayList<>(members), replicas));
+        _routed = new DerivedSubjectMap<>(new Function<K, Flowable<V>>() {
+            @Override
+            public Flowable<V> apply(final K key)
+            {
+                return _ring
+                        .map(new Function<ConsistentHashRing, String>() {
+                            @Override
+                            public String apply(ConsistentHashRing ring)
+                            {
+                                return ring.nodeFor(_keyHasher.hash(key));
+                            }
+                        })
+                        .distinctUntilChanged()
+                        .switchMap(new Function<String, Publisher<V>>() {
+                            @Override
+                            public Publisher<V> apply(String nodeId)
+                            {
+                                if (nodeId.equals(_localNodeId)) {
+                                    return _local.get(key);
+                                }
+
+                                return _transport.get(nodeId, key);
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Replaces the set of member nodes. Bound keys whose owner changes will be re-bound to
+     * their new owner
+     *
+     * @param members the ids of all member nodes
+     */
+    public void setMembers(Collection<String> members)
+    {
+        _ring.onNext(new ConsistentHashRing(new ArrayList<>(members), _replicas));
+    }
+
+    /**
+     * @param key the key whose owner is to be returned
+     *
+     * @return the id of the node which owns the key
+     */
+    public String ownerOf(K key)
+    {
+        return _ring.getValue().nodeFor(_keyHasher.hash(key));
+    }
+
+    /**
+     * Returns an observable associated with the specified key, bound to the map of the node
+     * which owns the key. See {@link SubjectMap#get(Object) get}.
+     *
+     * @param key the key whose associated observable is to be returned
+     *
+     * @return an observable which, when subscribed, will be bound to the specified key
+     * on its owning node
+     */
+    public Flowable<V> get(K key)
+    {
+        return _routed.get(key);
+    }
+
+    /**
+     * Emits the specified value on the node which owns the key. See
+     * {@link SubjectMap#onNext(Object, Object) onNext}.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be send to the specified observable
+     */
+    public void onNext(K key, V value)
+    {
+        String nodeId = ownerOf(key);
+
+        if (nodeId.equals(_localNodeId)) {
+            _local.onNext(key, value);
+        }
+        else {
+            _transport.onNext(nodeId, key, value);
+        }
+    }
+}
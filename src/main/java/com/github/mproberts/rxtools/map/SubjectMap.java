@@ -2,15 +2,24 @@ package com.github.mproberts.rxtools.map;
 
 import io.reactivex.*;
 import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
 import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -18,9 +27,12 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
 import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
+import io.reactivex.plugins.RxJavaPlugins;
 import io.reactivex.processors.BehaviorProcessor;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * SubjectMap manages the connection between an entity store and subscribers who are
@@ -45,16 +57,59 @@ public class SubjectMap<K, V>
     private final Lock _writeLock;
     private final Lock _readLock;
 
-    private final HashMap<K, WeakReference<Flowable<V>>> _weakCache;
+    private final HashMap<K, WeakReference<KeyedFlowable>> _weakCache;
     private final HashMap<K, WeakReference<Processor<V, V>>> _weakSources;
 
     private final HashMap<K, Flowable<V>> _cache;
 
     private final BehaviorProcessor<K> _faults;
 
+    private final List<KeyIndex<K, ?>> _indexes = new CopyOnWriteArrayList<>();
+
+    // emissions hold the read lock and transactions the write lock, so that an emission can
+    // never be released in the middle of a transaction
+    private final ReentrantReadWriteLock _transactionLock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Set<Action>> _transactionFlushes = new ThreadLocal<>();
+
     private Function<K, Single<V>> _faultHandler;
     private Function<List<K>, Single<List<V>>> _multiFaultHandler;
 
+    private volatile SubjectMapMetrics _metrics;
+    private volatile RetainedValueCache<K, V> _retainedValues;
+
+    private volatile BackingStore<K, V> _backingStore;
+    private volatile Scheduler.Worker _backingStoreWorker;
+    private volatile boolean _revalidateBackingStore;
+
+    /**
+     * A set of emissions staged within a {@link SubjectMap#transaction(Consumer) transaction}
+     * which will be released together once the transaction completes
+     *
+     * @param <K> key type for the collection
+     * @param <V> value type for the emissions from the observables of the collection
+     */
+    public static final class Batch<K, V>
+    {
+        private final LinkedHashMap<K, V> _staged = new LinkedHashMap<>();
+
+        Batch()
+        {
+        }
+
+        /**
+         * Stages the specified value to be emitted for the specified key when the transaction
+         * is released. Staging a key more than once will only emit the last value staged
+         *
+         * @param key key with which the specified value is to be associated
+         * @param value value to be send to the specified observable
+         */
+        public void onNext(K key, V value)
+        {
+            _staged.remove(key);
+            _staged.put(key, value);
+        }
+    }
+
     private class OnSubscribeAttach implements FlowableOnSubscribe<V>
     {
         private final AtomicInteger _attachmentCount = new AtomicInteger(0);
@@ -68,6 +123,34 @@ public class SubjectMap<K, V>
             _faultHandler = faultHandler;
         }
 
+        /**
+         * Binds the source for the key without issuing a fault, leaving the caller responsible
+         * for faulting the initial value when this is the first attachment
+         *
+         * @return true if this was the first attachment of the key
+         */
+        boolean acquire()
+        {
+            boolean isFirstAttachment = _attachmentCount.incrementAndGet() == 1;
+
+            if (isFirstAttachment) {
+                _valueObservable = attachSource(_key);
+            }
+
+            while (_valueObservable == null) {
+                Thread.yield();
+            }
+
+            return isFirstAttachment;
+        }
+
+        void release()
+        {
+            if (_attachmentCount.decrementAndGet() == 0) {
+                detachSource(_key);
+            }
+        }
+
         @Override
         public void subscribe(final FlowableEmitter<V> emitter) throws Exception
         {
@@ -84,6 +167,12 @@ public class SubjectMap<K, V>
                         return new CompletableSource() {
                             @Override
                             public void subscribe(CompletableObserver completableObserver) {
+                                if (serveWithoutFault(_key, _valueObservable)) {
+                                    completableObserver.onSubscribe(Disposables.empty());
+                                    completableObserver.onComplete();
+                                    return;
+                                }
+
                                 emitFault(_key);
 
                                 if (_faultHandler != null) {
@@ -94,6 +183,7 @@ public class SubjectMap<K, V>
                                             @Override
                                             public void accept(V v) throws Exception {
                                                 _valueObservable.onNext(v);
+                                                writeToBackingStore(_key, v);
                                             }
                                         }).toCompletable().subscribe(completableObserver);
                                     } catch (Exception e) {
@@ -186,6 +276,214 @@ public class SubjectMap<K, V>
         }
     }
 
+    /**
+     * The observable handed out for each key, exposing its attachment so that bulk
+     * observation can bind many keys without a subscription per key
+     */
+    private class KeyedFlowable extends Flowable<V>
+    {
+        private final OnSubscribeAttach _attach;
+        private final Flowable<V> _flowable;
+
+        KeyedFlowable(K key, Function<K, Single<V>> faultHandler)
+        {
+            _attach = new OnSubscribeAttach(key, faultHandler);
+            _flowable = Flowable.create(_attach, BackpressureStrategy.LATEST);
+        }
+
+        @Override
+        protected void subscribeActual(Subscriber<? super V> subscriber)
+        {
+            _flowable.subscribe(subscriber);
+        }
+    }
+
+    private class OnSubscribeAttachAll implements FlowableOnSubscribe<Map<K, V>>
+    {
+        private final List<K> _keys;
+
+        OnSubscribeAttachAll(List<K> keys)
+        {
+            _keys = keys;
+        }
+
+        @Override
+        public void subscribe(final FlowableEmitter<Map<K, V>> emitter) throws Exception
+        {
+            final List<KeyedFlowable> bindings = bindAll(_keys);
+            final int count = bindings.size();
+            final Object[] values = new Object[count];
+            final int[] missingCount = { count };
+            final Subscription[] subscriptions = new Subscription[count];
+            final AtomicReference<Disposable> faultDisposable = new AtomicReference<>();
+            final List<K> faultedKeys = new ArrayList<>();
+            final List<Processor<V, V>> faultedSources = new ArrayList<>();
+
+            for (int i = 0; i < count; ++i) {
+                OnSubscribeAttach attach = bindings.get(i)._attach;
+
+                if (attach.acquire()) {
+                    faultedKeys.add(attach._key);
+                    faultedSources.add(attach._valueObservable);
+                }
+            }
+
+            emitter.setDisposable(new Disposable() {
+                private final AtomicBoolean _isDisposed = new AtomicBoolean(false);
+
+                @Override
+                public void dispose() {
+                    if (!_isDisposed.compareAndSet(false, true)) {
+                        return;
+                    }
+
+                    Disposable disposable = faultDisposable.get();
+
+                    if (disposable != null) {
+                        disposable.dispose();
+                    }
+
+                    for (int i = 0; i < count; ++i) {
+                        synchronized (subscriptions) {
+                            if (subscriptions[i] != null) {
+                                subscriptions[i].cancel();
+                            }
+                        }
+
+                        bindings.get(i)._attach.release();
+                    }
+                }
+
+                @Override
+                public boolean isDisposed() {
+                    return _isDisposed.get();
+                }
+            });
+
+            if (count == 0) {
+                emitter.onNext(Collections.<K, V>emptyMap());
+                return;
+            }
+
+            class SnapshotEmitter implements Action
+            {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void run()
+                {
+                    synchronized (values) {
+                        Map<K, V> snapshot = new LinkedHashMap<>(count);
+
+                        for (int j = 0; j < count; ++j) {
+                            snapshot.put(bindings.get(j)._attach._key, (V) values[j]);
+                        }
+
+                        emitter.onNext(Collections.unmodifiableMap(snapshot));
+                    }
+                }
+            }
+
+            final SnapshotEmitter emitSnapshot = new SnapshotEmitter();
+
+            for (int i = 0; i < count; ++i) {
+                final int index = i;
+
+                bindings.get(i)._attach._valueObservable.subscribe(new FlowableSubscriber<V>() {
+                    @Override
+                    public void onSubscribe(Subscription s)
+                    {
+                        synchronized (subscriptions) {
+                            subscriptions[index] = s;
+                        }
+
+                        if (emitter.isCancelled()) {
+                            s.cancel();
+                        }
+                        else {
+                            s.request(Long.MAX_VALUE);
+                        }
+                    }
+
+                    @Override
+                    public void onNext(V v)
+                    {
+                        synchronized (values) {
+                            if (values[index] == null) {
+                                --missingCount[0];
+                            }
+
+                            values[index] = v;
+
+                            // emit only once every key has a value, so the initial batch is a single emission
+                            if (missingCount[0] == 0 && !deferUntilTransactionEnds(emitSnapshot)) {
+                                emitSnapshot.run();
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable e)
+                    {
+                        synchronized (values) {
+                            emitter.onError(e);
+                        }
+                    }
+
+                    @Override
+                    public void onComplete()
+                    {
+                        synchronized (values) {
+                            emitter.onComplete();
+                        }
+                    }
+                });
+            }
+
+            if (_backingStore != null || _retainedValues != null) {
+                List<K> unsatisfiedKeys = new ArrayList<>(faultedKeys.size());
+                List<Processor<V, V>> unsatisfiedSources = new ArrayList<>(faultedSources.size());
+
+                for (int i = 0, l = faultedKeys.size(); i < l; ++i) {
+                    if (!serveWithoutFault(faultedKeys.get(i), faultedSources.get(i))) {
+                        unsatisfiedKeys.add(faultedKeys.get(i));
+                        unsatisfiedSources.add(faultedSources.get(i));
+                    }
+                }
+
+                faultedKeys.clear();
+                faultedKeys.addAll(unsatisfiedKeys);
+                faultedSources.clear();
+                faultedSources.addAll(unsatisfiedSources);
+            }
+
+            if (faultedKeys.isEmpty() || emitter.isCancelled()) {
+                return;
+            }
+
+            // fault all of the newly attached keys together, using the multi-fault handler if one is set
+            processFaultForRetainedKeys(faultedKeys, new CompletableObserver() {
+                @Override
+                public void onSubscribe(Disposable d)
+                {
+                    faultDisposable.set(d);
+                }
+
+                @Override
+                public void onComplete()
+                {
+                }
+
+                @Override
+                public void onError(Throwable e)
+                {
+                    for (Processor<V, V> faultedSource : faultedSources) {
+                        faultedSource.onError(e);
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Constructs a new, empty SubjectMap
      */
@@ -201,6 +499,7 @@ public class SubjectMap<K, V>
         _faults = BehaviorProcessor.create();
 
         _weakSources = new HashMap<>();
+        _metrics = SubjectMapMetrics.defaultMetrics();
     }
 
     private Processor<V, V> attachSource(K key)
@@ -217,7 +516,7 @@ public class SubjectMap<K, V>
 
             Processor<V, V> value = BehaviorProcessor.create();
 
-            WeakReference<Flowable<V>> weakConnector = _weakCache.get(key);
+            WeakReference<KeyedFlowable> weakConnector = _weakCache.get(key);
 
             // if an observable is being attached then it must have been added to the weak cache
             // and it must still be referenced
@@ -231,6 +530,16 @@ public class SubjectMap<K, V>
             _weakSources.put(key, new WeakReference<>(value));
             _cache.put(key, connector);
 
+            for (KeyIndex<K, ?> index : _indexes) {
+                index.add(key);
+            }
+
+            SubjectMapMetrics metrics = _metrics;
+
+            if (metrics != null) {
+                metrics.onAttach();
+            }
+
             return value;
         }
         finally {
@@ -242,13 +551,49 @@ public class SubjectMap<K, V>
     {
         _writeLock.lock();
         try {
-            _cache.remove(key);
+            if (_cache.remove(key) != null) {
+                onDetached(key);
+                retainUnboundValue(key);
+            }
         }
         finally {
             _writeLock.unlock();
         }
     }
 
+    private void onDetached(K key)
+    {
+        for (KeyIndex<K, ?> index : _indexes) {
+            index.remove(key);
+        }
+
+        SubjectMapMetrics metrics = _metrics;
+
+        if (metrics != null) {
+            metrics.onDetach();
+        }
+    }
+
+    private void retainUnboundValue(K key)
+    {
+        RetainedValueCache<K, V> retainedValues = _retainedValues;
+
+        if (retainedValues == null) {
+            return;
+        }
+
+        WeakReference<Processor<V, V>> weakSource = _weakSources.get(key);
+        Processor<V, V> source = weakSource != null ? weakSource.get() : null;
+
+        if (source instanceof BehaviorProcessor) {
+            V value = ((BehaviorProcessor<V>) source).getValue();
+
+            if (value != null) {
+                retainedValues.put(key, value);
+            }
+        }
+    }
+
     private void emitUpdate(K key, Consumer<Processor<V, V>> updater, Action missHandler)
     {
         emitUpdate(key, updater, missHandler, false);
@@ -276,7 +621,10 @@ public class SubjectMap<K, V>
             if (disconnect) {
                 _weakSources.remove(key);
                 _weakCache.remove(key);
-                _cache.remove(key);
+
+                if (_cache.remove(key) != null) {
+                    onDetached(key);
+                }
             }
         }
         finally {
@@ -289,6 +637,16 @@ public class SubjectMap<K, V>
 
         }
 
+        SubjectMapMetrics metrics = _metrics;
+
+        if (metrics != null) {
+            metrics.onEmit(subject != null);
+        }
+
+        Lock emissionLock = _transactionLock.readLock();
+
+        emissionLock.lock();
+
         try {
             if (subject != null) {
                 updater.accept(subject);
@@ -300,6 +658,9 @@ public class SubjectMap<K, V>
         catch (Exception e) {
             throw new RuntimeException(e);
         }
+        finally {
+            emissionLock.unlock();
+        }
     }
 
     private void emitFault(K key)
@@ -319,6 +680,388 @@ public class SubjectMap<K, V>
         _faultHandler = null;
     }
 
+    /**
+     * Sets the listener notified of the activity of the map, replacing any existing listener.
+     * When no listener is set, no measurements are taken. Maps initially use the listener
+     * selected by {@link SubjectMapMetrics#defaultMetrics()}
+     *
+     * @param metrics the listener to notify, or null to disable metrics
+     */
+    public void setMetrics(SubjectMapMetrics metrics)
+    {
+        _metrics = metrics;
+    }
+
+    /**
+     * Returns a snapshot of the size of the map's internal structures, without weighing the
+     * retained values
+     *
+     * @return the footprint of the map
+     */
+    public SubjectMapFootprint footprint()
+    {
+        return footprint(null);
+    }
+
+    /**
+     * Returns a snapshot of the size of the map's internal structures. Each value held by a
+     * live subject is passed to the weigher, so taking a footprint of a large map is relatively
+     * expensive and blocks new keys from being bound while it runs. Values retained for unbound
+     * keys are reported with the weight they were retained with
+     *
+     * @param weigher the weigher for retained values, or null to skip weighing values
+     *
+     * @return the footprint of the map
+     */
+    public SubjectMapFootprint footprint(Weigher<K, V> weigher)
+    {
+        int cachedObservables = 0;
+        int liveSources = 0;
+        int retainedValues = 0;
+        long retainedValueWeight = 0;
+        int unboundValues = 0;
+        long unboundValueWeight = 0;
+
+        RetainedValueCache<K, V> unboundValueCache = _retainedValues;
+
+        if (unboundValueCache != null) {
+            // both are read under the cache's lock so that they describe the same values
+            synchronized (unboundValueCache) {
+                unboundValues = unboundValueCache.size();
+                unboundValueWeight = unboundValueCache.weight();
+            }
+        }
+
+        _readLock.lock();
+
+        try {
+            for (WeakReference<KeyedFlowable> weakObservable : _weakCache.values()) {
+                if (weakObservable.get() != null) {
+                    ++cachedObservables;
+                }
+            }
+
+            for (Map.Entry<K, WeakReference<Processor<V, V>>> entry : _weakSources.entrySet()) {
+                Processor<V, V> source = entry.getValue().get();
+
+                if (source == null) {
+                    continue;
+                }
+
+                ++liveSources;
+
+                V value = source instanceof BehaviorProcessor ? ((BehaviorProcessor<V>) source).getValue() : null;
+
+                if (value != null) {
+                    ++retainedValues;
+
+                    if (weigher != null) {
+                        retainedValueWeight += weigher.weigh(entry.getKey(), value);
+                    }
+                }
+            }
+
+            return new SubjectMapFootprint(
+                    cachedObservables,
+                    _weakCache.size() - cachedObservables,
+                    liveSources,
+                    _weakSources.size() - liveSources,
+                    _cache.size(),
+                    retainedValues,
+                    retainedValueWeight,
+                    unboundValues,
+                    unboundValueWeight);
+        }
+        finally {
+            _readLock.unlock();
+        }
+    }
+
+    private long lockForWrite(SubjectMapMetrics metrics)
+    {
+        if (metrics == null) {
+            _writeLock.lock();
+            return 0;
+        }
+
+        long start = System.nanoTime();
+
+        _writeLock.lock();
+
+        long lockedAt = System.nanoTime();
+
+        metrics.onWriteLockWait(lockedAt - start);
+
+        return lockedAt;
+    }
+
+    private void unlockForWrite(SubjectMapMetrics metrics, long lockedAt)
+    {
+        _writeLock.unlock();
+
+        if (metrics != null) {
+            metrics.onWriteLockHold(System.nanoTime() - lockedAt);
+        }
+    }
+
+    private Single<V> invokeFaultHandler(Function<K, Single<V>> faultHandler, K key) throws Exception
+    {
+        return measureFault(faultHandler.apply(key), 1);
+    }
+
+    private Single<List<V>> invokeMultiFaultHandler(Function<List<K>, Single<List<V>>> faultHandler, List<K> keys) throws Exception
+    {
+        return measureFault(faultHandler.apply(keys), keys.size());
+    }
+
+    private <T> Single<T> measureFault(final Single<T> fault, final int keyCount)
+    {
+        final SubjectMapMetrics metrics = _metrics;
+
+        if (metrics == null) {
+            return fault;
+        }
+
+        return Single.defer(new Callable<Single<T>>() {
+            @Override
+            public Single<T> call()
+            {
+                final long start = System.nanoTime();
+
+                return fault
+                        .doOnSuccess(new Consumer<T>() {
+                            @Override
+                            public void accept(T value)
+                            {
+                                metrics.onFault(keyCount, System.nanoTime() - start, null);
+                            }
+                        })
+                        .doOnError(new Consumer<Throwable>() {
+                            @Override
+                            public void accept(Throwable throwable)
+                            {
+                                metrics.onFault(keyCount, System.nanoTime() - start, throwable);
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Sets a fault handler which performs blocking work, such as a database or file read.
+     * Each fault is run on a virtual thread when the runtime supports them, or on a bounded
+     * pool of threads otherwise, rather than growing the io scheduler without bound
+     *
+     * @param faultHandler the blocking method returning the value for a key
+     */
+    public void setBlockingFaultHandler(final Function<K, V> faultHandler)
+    {
+        final Scheduler scheduler = BlockingFaultScheduler.get();
+
+        setFaultHandler(new Function<K, Single<V>>() {
+            @Override
+            public Single<V> apply(final K key)
+            {
+                return Single.fromCallable(new Callable<V>() {
+                    @Override
+                    public V call() throws Exception
+                    {
+                        return faultHandler.apply(key);
+                    }
+                }).subscribeOn(scheduler);
+            }
+        });
+    }
+
+    /**
+     * Sets a multi-fault handler which performs blocking work. See
+     * {@link #setBlockingFaultHandler(Function) setBlockingFaultHandler}.
+     *
+     * @param faultHandler the blocking method returning the values for a list of keys, in
+     *                     the same order as the keys
+     */
+    public void setBlockingMultiFaultHandler(final Function<List<K>, List<V>> faultHandler)
+    {
+        final Scheduler scheduler = BlockingFaultScheduler.get();
+
+        setMultiFaultHandler(new Function<List<K>, Single<List<V>>>() {
+            @Override
+            public Single<List<V>> apply(final List<K> keys)
+            {
+                return Single.fromCallable(new Callable<List<V>>() {
+                    @Override
+                    public List<V> call() throws Exception
+                    {
+                        return faultHandler.apply(keys);
+                    }
+                }).subscribeOn(scheduler);
+            }
+        });
+    }
+
+    /**
+     * Sets the store consulted before the fault handler when a key is first bound. A stored
+     * value is emitted immediately and the key is then faulted as usual to revalidate it. All
+     * emitted values are written to the store synchronously, and the values of invalidated or
+     * errored keys are removed from it
+     *
+     * @param backingStore the store to consult, or null to remove the store
+     */
+    public void setBackingStore(BackingStore<K, V> backingStore)
+    {
+        setBackingStore(backingStore, true, Schedulers.trampoline());
+    }
+
+    /**
+     * Sets the store consulted before the fault handler when a key is first bound. A stored
+     * value is emitted immediately, and if revalidation is disabled, the fault is skipped
+     * entirely. Emitted values are written to the store, and the values of invalidated or
+     * errored keys removed from it, in order on a single worker of the supplied scheduler
+     *
+     * @param backingStore the store to consult, or null to remove the store
+     * @param revalidate true if keys served from the store should still be faulted
+     * @param writeScheduler the scheduler on which values are written to the store
+     */
+    public void setBackingStore(BackingStore<K, V> backingStore, boolean revalidate, Scheduler writeScheduler)
+    {
+        Scheduler.Worker previousWorker = _backingStoreWorker;
+
+        _backingStoreWorker = backingStore != null ? writeScheduler.createWorker() : null;
+        _revalidateBackingStore = revalidate;
+        _backingStore = backingStore;
+
+        if (previousWorker != null) {
+            previousWorker.dispose();
+        }
+    }
+
+    /**
+     * Retains the last value of keys after their last subscriber unsubscribes, so that binding
+     * the key again emits the value without a fault, until the total weight of retained values
+     * exceeds the specified maximum. Values are evicted based on how frequently their keys are
+     * bound, so values of rarely used keys, and the heaviest of equally used values, are
+     * evicted first. Retained values are updated by {@link #onNext(Object, Object) onNext}
+     * and discarded when their key is faulted or errored
+     *
+     * @param maximumWeight the maximum total weight of retained values, or 0 to disable retention
+     * @param weigher the weigher used to calculate the weight of each retained value
+     */
+    public void setMaximumRetainedWeight(long maximumWeight, Weigher<K, V> weigher)
+    {
+        _retainedValues = maximumWeight > 0 ? new RetainedValueCache<>(maximumWeight, weigher) : null;
+    }
+
+    /**
+     * Emits the value retained for the key since it was last bound, falling back to the
+     * backing store
+     *
+     * @return true if the key was satisfied and does not need to be faulted
+     */
+    private boolean serveWithoutFault(K key, Processor<V, V> processor)
+    {
+        RetainedValueCache<K, V> retainedValues = _retainedValues;
+
+        if (retainedValues != null) {
+            V value = retainedValues.take(key);
+
+            if (value != null) {
+                processor.onNext(value);
+                return true;
+            }
+        }
+
+        return serveFromBackingStore(key, processor);
+    }
+
+    /**
+     * Emits the stored value for the key, if there is one
+     *
+     * @return true if the key was satisfied by the store and does not need to be faulted
+     */
+    private boolean serveFromBackingStore(K key, Processor<V, V> processor)
+    {
+        BackingStore<K, V> backingStore = _backingStore;
+
+        if (backingStore == null) {
+            return false;
+        }
+
+        V value;
+
+        try {
+            value = backingStore.get(key);
+        }
+        catch (Exception e) {
+            // a failing store is treated as a miss, the fault handler remains the source of truth
+            RxJavaPlugins.onError(e);
+            return false;
+        }
+
+        if (value == null) {
+            return false;
+        }
+
+        processor.onNext(value);
+
+        return !_revalidateBackingStore;
+    }
+
+    private void writeToBackingStore(final K key, final V value)
+    {
+        final BackingStore<K, V> backingStore = _backingStore;
+        Scheduler.Worker worker = _backingStoreWorker;
+
+        if (backingStore == null || worker == null) {
+            return;
+        }
+
+        worker.schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    backingStore.put(key, value);
+                }
+                catch (Exception e) {
+                    RxJavaPlugins.onError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the stored values of the keys, and of any keys matching the predicate, in order
+     * with the values being written so that an invalidated value is not served from the store
+     */
+    private void removeFromBackingStore(final List<K> keys, final Predicate<K> predicate)
+    {
+        final BackingStore<K, V> backingStore = _backingStore;
+        Scheduler.Worker worker = _backingStoreWorker;
+
+        if (backingStore == null || worker == null) {
+            return;
+        }
+
+        worker.schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    for (K key : keys) {
+                        backingStore.remove(key);
+                    }
+
+                    if (predicate != null) {
+                        backingStore.removeIf(predicate);
+                    }
+                }
+                catch (Exception e) {
+                    RxJavaPlugins.onError(e);
+                }
+            }
+        });
+    }
+
     /**
      * Returns a stream of keys indicating which values need to be faulted in to satisfy
      * the observables which have been requested through the system
@@ -334,6 +1077,26 @@ public class SubjectMap<K, V>
      * Re-emits a fault for the specified key if there is someone bound
      */
     public Completable faultIfBound(final K key)
+    {
+        return faultKeysIfBound(Collections.singletonList(key));
+    }
+
+    /**
+     * Re-emits a fault for each of the specified keys which are bound
+     */
+    Completable faultKeysIfBound(final List<K> keys)
+    {
+        return faultKeysIfBound(keys, null);
+    }
+
+    /**
+     * Re-emits a fault for each of the specified keys which are bound, discarding the values
+     * retained or stored for those keys and for any unbound keys matching the predicate
+     *
+     * @param keys the keys to fault if bound
+     * @param unboundKeys the predicate matching unbound keys which were invalidated, or null
+     */
+    Completable faultKeysIfBound(final List<K> keys, final Predicate<K> unboundKeys)
     {
         return Completable.defer(new Callable<CompletableSource>() {
             @Override
@@ -341,14 +1104,83 @@ public class SubjectMap<K, V>
                 return new CompletableSource() {
                     @Override
                     public void subscribe(CompletableObserver completableObserver) {
+                        RetainedValueCache<K, V> retainedValues = _retainedValues;
+
+                        removeFromBackingStore(keys, unboundKeys);
+
+                        if (retainedValues != null) {
+                            for (K key : keys) {
+                                retainedValues.remove(key);
+                            }
+
+                            if (unboundKeys != null) {
+                                try {
+                                    retainedValues.removeIf(unboundKeys);
+                                }
+                                catch (Exception e) {
+                                    Completable.error(e).subscribe(completableObserver);
+                                    return;
+                                }
+                            }
+                        }
+
                         _readLock.lock();
-                        List<K> retainedKeys = new ArrayList<>(1);
+                        List<K> retainedKeys = new ArrayList<>(keys.size());
                         try {
-                            WeakReference<Processor<V, V>> weakSource = _weakSources.get(key);
-                            if (weakSource != null && weakSource.get() != null) {
-                                retainedKeys.add(key);
+                            for (K key : keys) {
+                                WeakReference<Processor<V, V>> weakSource = _weakSources.get(key);
+                                if (weakSource != null && weakSource.get() != null) {
+                                    retainedKeys.add(key);
+                                }
+                            }
+                        }
+                        finally {
+                            _readLock.unlock();
+                        }
+                        processFaultForRetainedKeys(retainedKeys, completableObserver);
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Re-emits a fault for all bound keys which match the specified predicate. This scans
+     * every bound key, use a {@link KeyIndex} to invalidate groups of keys without a scan
+     *
+     * @param predicate the predicate indicating whether a bound key should be faulted
+     */
+    public Completable faultIfBoundMatching(final Predicate<K> predicate)
+    {
+        return Completable.defer(new Callable<CompletableSource>() {
+            @Override
+            public CompletableSource call() throws Exception {
+                return new CompletableSource() {
+                    @Override
+                    public void subscribe(CompletableObserver completableObserver) {
+                        List<K> retainedKeys = new ArrayList<>();
+                        RetainedValueCache<K, V> retainedValues = _retainedValues;
+
+                        removeFromBackingStore(Collections.<K>emptyList(), predicate);
+
+                        _readLock.lock();
+
+                        try {
+                            if (retainedValues != null) {
+                                retainedValues.removeIf(predicate);
+                            }
+
+                            for (K key : _weakSources.keySet()) {
+                                WeakReference<Processor<V, V>> weakSource = _weakSources.get(key);
+                                if (weakSource != null && weakSource.get() != null && predicate.test(key)) {
+                                    retainedKeys.add(key);
+                                }
                             }
                         }
+                        catch (Exception e) {
+                            Completable.error(e).subscribe(completableObserver);
+                            return;
+                        }
                         finally {
                             _readLock.unlock();
                         }
@@ -359,6 +1191,36 @@ public class SubjectMap<K, V>
         });
     }
 
+    /**
+     * Creates a secondary index over the bound keys of the map, grouping keys by the value
+     * returned from the group extractor. The index is maintained as keys are attached and
+     * detached and allows all bound keys of a group to be faulted together.
+     *
+     * @param groupExtractor the function returning the group to which a key belongs
+     * @param <G> the type of the groups
+     *
+     * @return an index of bound keys by group
+     */
+    public <G> KeyIndex<K, G> createIndex(Function<K, G> groupExtractor)
+    {
+        KeyIndex<K, G> index = new KeyIndex<>(this, groupExtractor);
+
+        _writeLock.lock();
+
+        try {
+            for (K key : _cache.keySet()) {
+                index.add(key);
+            }
+
+            _indexes.add(index);
+        }
+        finally {
+            _writeLock.unlock();
+        }
+
+        return index;
+    }
+
     /**
      * Re-emits a fault for all bound keys
      */
@@ -370,6 +1232,20 @@ public class SubjectMap<K, V>
                 return new CompletableSource() {
                     @Override
                     public void subscribe(CompletableObserver completableObserver) {
+                        RetainedValueCache<K, V> retainedValues = _retainedValues;
+
+                        if (retainedValues != null) {
+                            retainedValues.clear();
+                        }
+
+                        removeFromBackingStore(Collections.<K>emptyList(), new Predicate<K>() {
+                            @Override
+                            public boolean test(K key)
+                            {
+                                return true;
+                            }
+                        });
+
                         List<K> retainedKeys = new ArrayList<>(_weakSources.size());
                         _readLock.lock();
 
@@ -416,7 +1292,7 @@ public class SubjectMap<K, V>
             try {
                 List<Completable> faultCompletables = new ArrayList<>(retainedKeys.size());
                 for (final K key : retainedKeys) {
-                    Single<V> fault = faultHandler.apply(key);
+                    Single<V> fault = invokeFaultHandler(faultHandler, key);
 
                     faultCompletables.add(fault.doOnSuccess(new Consumer<V>() {
                         @Override
@@ -427,6 +1303,7 @@ public class SubjectMap<K, V>
                             Processor<V, V> processor;
                             if (weakSource != null && (processor = weakSource.get()) != null) {
                                 processor.onNext(v);
+                                writeToBackingStore(key, v);
                             }
                         }
                     }).toCompletable());
@@ -439,7 +1316,7 @@ public class SubjectMap<K, V>
         } else if (_multiFaultHandler != null)  {
             Function<List<K>, Single<List<V>>> faultHandler = _multiFaultHandler;
             try {
-                Single<List<V>> multiFault = faultHandler.apply(retainedKeys);
+                Single<List<V>> multiFault = invokeMultiFaultHandler(faultHandler, retainedKeys);
 
                 multiFault
                         .doOnSuccess(new Consumer<List<V>>() {
@@ -460,6 +1337,7 @@ public class SubjectMap<K, V>
                                     Processor<V, V> processor;
                                     if (weakSource != null && (processor = weakSource.get()) != null) {
                                         processor.onNext(value);
+                                        writeToBackingStore(key, value);
                                     }
                                 }
                             }
@@ -481,26 +1359,63 @@ public class SubjectMap<K, V>
      * Emits the specified value from the observable associated with the specified key
      * if there is an associated observable. If no observable has subscribed to the key,
      * this operation is a noop. If no value is not emitted it will be faulted in later
-     * should another query request it
+     * should another query request it. If a backing store is set, the value is created and
+     * written to the store even when the key is not bound
      *
      * @param key key with which the specified value is to be associated
      * @param valueProvider the method to be called to create the new value in the case of a hit
      * @param missHandler the callback for when a subscriber has not been bound
      */
-    public void onNext(K key, final Callable<V> valueProvider, Action missHandler)
+    public void onNext(final K key, final Callable<V> valueProvider, final Action missHandler)
     {
+        final RetainedValueCache<K, V> retainedValues = _retainedValues;
+        final boolean hasBackingStore = _backingStore != null;
+        Action onMiss = missHandler;
+
+        if (retainedValues != null || hasBackingStore) {
+            onMiss = new Action() {
+                @Override
+                public void run() throws Exception
+                {
+                    boolean isRetained = retainedValues != null && retainedValues.contains(key);
+
+                    if (isRetained || hasBackingStore) {
+                        V value = valueProvider.call();
+
+                        // keep the value retained for an unbound key up to date
+                        if (isRetained) {
+                            retainedValues.replace(key, value);
+                        }
+
+                        // otherwise the store would serve the replaced value when the key is next bound
+                        writeToBackingStore(key, value);
+                    }
+
+                    missHandler.run();
+                }
+            };
+        }
+
         emitUpdate(key, new Consumer<Processor<V, V>>() {
             @Override
             public void accept(Processor<V, V> subject)
             {
                 try {
-                    subject.onNext(valueProvider.call());
+                    V value = valueProvider.call();
+
+                    subject.onNext(value);
+                    writeToBackingStore(key, value);
+
+                    if (retainedValues != null) {
+                        // the subject may belong to a key which is no longer bound
+                        retainedValues.replace(key, value);
+                    }
                 }
                 catch (Exception error) {
                     subject.onError(error);
                 }
             }
-        }, missHandler);
+        }, onMiss);
     }
 
     /**
@@ -547,6 +1462,14 @@ public class SubjectMap<K, V>
      */
     public void onError(K key, final Throwable error)
     {
+        RetainedValueCache<K, V> retainedValues = _retainedValues;
+
+        if (retainedValues != null) {
+            retainedValues.remove(key);
+        }
+
+        removeFromBackingStore(Collections.singletonList(key), null);
+
         emitUpdate(key, new Consumer<Processor<V, V>>() {
             @Override
             public void accept(Processor<V, V> subject)
@@ -556,6 +1479,102 @@ public class SubjectMap<K, V>
         }, EMPTY_ACTION, true);
     }
 
+    /**
+     * Stages emissions for many keys and releases them together once the supplied action
+     * returns. Observables returned from {@link #observeAll(List) observeAll} will only be
+     * notified once for the entire transaction rather than once per key. If the supplied
+     * action throws, none of the staged emissions will be released
+     *
+     * Calls to onNext and onError on other threads wait until the transaction has been
+     * released, so no subscriber sees only part of it. A transaction started from a subscriber
+     * while a value is being emitted on the same thread cannot wait for that emission and is
+     * only isolated from other transactions. Faulted values are not ordered with transactions
+     *
+     * @param changes an action to be called which will stage emissions on the batch
+     */
+    public void transaction(Consumer<Batch<K, V>> changes)
+    {
+        transaction(changes, true);
+    }
+
+    /**
+     * Stages emissions for many keys and releases them together once the supplied action
+     * returns. See {@link #transaction(Consumer) transaction}.
+     *
+     * @param changes an action to be called which will stage emissions on the batch
+     * @param coalesceViews true if observables returned from {@link #observeAll(List) observeAll}
+     *                      should be notified once per transaction rather than once per key
+     */
+    public void transaction(Consumer<Batch<K, V>> changes, boolean coalesceViews)
+    {
+        Batch<K, V> batch = new Batch<>();
+
+        try {
+            changes.accept(batch);
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        // exclude other transactions and emissions so that nothing is released in the middle of
+        // the transaction. A transaction started while this thread is emitting cannot wait for
+        // the emission to finish, it keeps out other transactions but not other emissions
+        boolean isEmitting = _transactionLock.getReadHoldCount() > 0
+                && !_transactionLock.isWriteLockedByCurrentThread();
+        Lock transactionLock = isEmitting ? _transactionLock.readLock() : _transactionLock.writeLock();
+
+        transactionLock.lock();
+
+        try {
+            Set<Action> outerFlushes = _transactionFlushes.get();
+            Set<Action> flushes = outerFlushes;
+
+            if (coalesceViews && flushes == null) {
+                flushes = new LinkedHashSet<>();
+
+                _transactionFlushes.set(flushes);
+            }
+
+            try {
+                for (Map.Entry<K, V> entry : batch._staged.entrySet()) {
+                    onNext(entry.getKey(), entry.getValue());
+                }
+            }
+            finally {
+                if (flushes != outerFlushes) {
+                    _transactionFlushes.remove();
+                }
+            }
+
+            if (flushes != null && flushes != outerFlushes) {
+                try {
+                    for (Action flush : flushes) {
+                        flush.run();
+                    }
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        finally {
+            transactionLock.unlock();
+        }
+    }
+
+    private boolean deferUntilTransactionEnds(Action flush)
+    {
+        Set<Action> flushes = _transactionFlushes.get();
+
+        if (flushes == null) {
+            return false;
+        }
+
+        flushes.add(flush);
+
+        return true;
+    }
+
     /**
      * Returns a list of observables associated with their respective keys. The observable
      * will request that a value be supplied when the observable is bound and automatically
@@ -571,7 +1590,7 @@ public class SubjectMap<K, V>
      */
     public List<Flowable<V>> getAll(List<K> keys)
     {
-        WeakReference<Flowable<V>> weakObservable;
+        WeakReference<KeyedFlowable> weakObservable;
         int remainingCount = keys.size();
 
         ArrayList<K> remainingKeys = new ArrayList<>(keys.size());
@@ -604,6 +1623,12 @@ public class SubjectMap<K, V>
                 }
             }
 
+            SubjectMapMetrics metrics = _metrics;
+
+            if (metrics != null) {
+                metrics.onGetAll(keys.size(), remainingCount);
+            }
+
             // found caches for all values
             if (remainingCount == 0) {
                 return values;
@@ -611,7 +1636,7 @@ public class SubjectMap<K, V>
 
             // we do not have an observable for the key, escalate the lock
             _readLock.unlock();
-            _writeLock.lock();
+            long lockedAt = lockForWrite(metrics);
 
             try {
                 // recheck the observable since we had to retake the lock
@@ -652,16 +1677,19 @@ public class SubjectMap<K, V>
                     }
                 }
 
-                Function<K, Single<V>> faultHandler = _faultHandler;
+                Function<K, Single<V>> faultHandler;
 
-                if (_multiFaultHandler != null) {
+                if (_multiFaultHandler == null) {
+                    faultHandler = singleKeyFaultHandler();
+                }
+                else {
                     faultHandler = new Function<K, Single<V>>() {
                         private volatile Single<List<V>> _allFetchedValues;
 
                         void prepare() {
                             if (_allFetchedValues == null) {
                                 try {
-                                    _allFetchedValues = _multiFaultHandler.apply(filteredKeys).cache();
+                                    _allFetchedValues = invokeMultiFaultHandler(_multiFaultHandler, filteredKeys).cache();
                                 } catch (Exception e) {
                                     _allFetchedValues = Single.error(e);
                                 }
@@ -692,10 +1720,7 @@ public class SubjectMap<K, V>
                     }
 
                     // no observable was found in the cache, create a new binding
-                    Flowable<V> observable = Flowable.create(
-                        new OnSubscribeAttach(key, faultHandler),
-                        BackpressureStrategy.LATEST
-                    );
+                    KeyedFlowable observable = new KeyedFlowable(key, faultHandler);
 
                     values.set(i, observable);
 
@@ -704,7 +1729,7 @@ public class SubjectMap<K, V>
             }
             finally {
                 _readLock.lock();
-                _writeLock.unlock();
+                unlockForWrite(metrics, lockedAt);
             }
 
             return values;
@@ -714,6 +1739,99 @@ public class SubjectMap<K, V>
         }
     }
 
+    private List<KeyedFlowable> bindAll(List<K> keys)
+    {
+        Function<K, Single<V>> faultHandler = singleKeyFaultHandler();
+        List<KeyedFlowable> bindings = new ArrayList<>(keys.size());
+
+        _writeLock.lock();
+
+        try {
+            for (K key : keys) {
+                WeakReference<KeyedFlowable> weakObservable = _weakCache.get(key);
+                KeyedFlowable observable = null;
+
+                if (weakObservable != null) {
+                    observable = weakObservable.get();
+
+                    if (observable == null) {
+                        // the target of the weak source should have already been cleared by the
+                        // garbage collector since the source is retained by the cached observable
+                        _weakSources.remove(key);
+                    }
+                }
+
+                if (observable == null) {
+                    observable = new KeyedFlowable(key, faultHandler);
+
+                    _weakCache.put(key, new WeakReference<>(observable));
+                }
+
+                bindings.add(observable);
+            }
+        }
+        finally {
+            _writeLock.unlock();
+        }
+
+        return bindings;
+    }
+
+    /**
+     * Returns a single observable bound to all of the specified keys. All keys are attached
+     * through one subscription and any keys which are not yet bound are faulted together,
+     * through the multi-fault handler if one is set.
+     *
+     * The observable emits an immutable snapshot of the values of all keys once every key
+     * has a value, and again whenever any of the values change. An error on any key will
+     * terminate the observable.
+     *
+     * @param keys list of keys to observe
+     *
+     * @return an observable which, when subscribed, will be bound to all of the specified keys
+     */
+    public Flowable<Map<K, V>> observeAll(List<K> keys)
+    {
+        List<K> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+
+        return Flowable.create(new OnSubscribeAttachAll(distinctKeys), BackpressureStrategy.LATEST);
+    }
+
+    private Function<K, Single<V>> singleKeyFaultHandler()
+    {
+        final Function<K, Single<V>> faultHandler = _faultHandler;
+
+        if (faultHandler != null) {
+            return new Function<K, Single<V>>() {
+                @Override
+                public Single<V> apply(K k) throws Exception {
+                    return invokeFaultHandler(faultHandler, k);
+                }
+            };
+        }
+
+        if (_multiFaultHandler != null) {
+            return new Function<K, Single<V>>() {
+                @Override
+                public Single<V> apply(K k) throws Exception {
+                    return invokeMultiFaultHandler(_multiFaultHandler, Arrays.asList(k)).map(new Function<List<V>, V>() {
+                        @Override
+                        public V apply(List<V> vs) throws Exception {
+
+                            if (vs.size() != 1) {
+                                throw new IllegalStateException("Multifault handler returned result of incorrect size.") ;
+                            }
+
+                            return vs.get(0);
+                        }
+                    });
+                }
+            };
+        }
+
+        return faultHandler;
+    }
+
     /**
      * Returns an observable associated with the specified key. The observable will
      * request that a value be supplied when the observable is bound and automatically
@@ -726,7 +1844,8 @@ public class SubjectMap<K, V>
      */
     public Flowable<V> get(K key)
     {
-        WeakReference<Flowable<V>> weakObservable;
+        WeakReference<KeyedFlowable> weakObservable;
+        SubjectMapMetrics metrics = _metrics;
 
         _readLock.lock();
 
@@ -740,13 +1859,21 @@ public class SubjectMap<K, V>
 
                 if (observable != null) {
                     // we already have a cached observable bound to this key
+                    if (metrics != null) {
+                        metrics.onGet(true);
+                    }
+
                     return observable;
                 }
             }
 
+            if (metrics != null) {
+                metrics.onGet(false);
+            }
+
             // we do not have an observable for the key, escalate the lock
             _readLock.unlock();
-            _writeLock.lock();
+            long lockedAt = lockForWrite(metrics);
 
             try {
                 // recheck the observable since we had to retake the lock
@@ -765,35 +1892,16 @@ public class SubjectMap<K, V>
                     }
                 }
 
-                Function<K, Single<V>> faultHandler = _faultHandler;
-
-                if (_multiFaultHandler != null) {
-                    faultHandler = new Function<K, Single<V>>() {
-                        @Override
-                        public Single<V> apply(K k) throws Exception {
-                            return _multiFaultHandler.apply(Arrays.asList(k)).map(new Function<List<V>, V>() {
-                                @Override
-                                public V apply(List<V> vs) throws Exception {
-
-                                    if (vs.size() != 1) {
-                                        throw new IllegalStateException("Multifault handler returned result of incorrect size.") ;
-                                    }
-
-                                    return vs.get(0);
-                                }
-                            });
-                        }
-                    };
-                }
-
                 // no observable was found in the cache, create a new binding
-                observable = Flowable.create(new OnSubscribeAttach(key, faultHandler), BackpressureStrategy.LATEST);
+                KeyedFlowable binding = new KeyedFlowable(key, singleKeyFaultHandler());
+
+                _weakCache.put(key, new WeakReference<>(binding));
 
-                _weakCache.put(key, new WeakReference<>(observable));
+                observable = binding;
             }
             finally {
                 _readLock.lock();
-                _writeLock.unlock();
+                unlockForWrite(metrics, lockedAt);
             }
 
             return observable;
@@ -803,6 +1911,27 @@ public class SubjectMap<K, V>
         }
     }
 
+    /**
+     * Returns a read-only view of this map whose values are computed from the values of this
+     * map. Derived keys attach lazily to a single upstream subscription per key, and the transform
+     * is applied once per upstream emission regardless of the number of derived subscribers.
+     *
+     * @param transform the function applied to each emission of the upstream key
+     * @param <R> the type of the derived values
+     *
+     * @return a read-only view of the derived values
+     */
+    public <R> DerivedSubjectMap<K, R> mapValues(final Function<V, R> transform)
+    {
+        return new DerivedSubjectMap<>(new Function<K, Flowable<R>>() {
+            @Override
+            public Flowable<R> apply(K key)
+            {
+                return get(key).map(transform);
+            }
+        });
+    }
+
     /**
      * Clear all internal caches for this map.
      * onComplete() will be called for all sources that are still alive.
@@ -813,7 +1942,22 @@ public class SubjectMap<K, V>
         List<Processor<V, V>> lingeringProcessors = new ArrayList<>(_weakSources.size());
         _writeLock.lock();
         try {
+            SubjectMapMetrics metrics = _metrics;
+
+            if (metrics != null) {
+                for (int i = 0, l = _cache.size(); i < l; ++i) {
+                    metrics.onDetach();
+                }
+            }
+
             _cache.clear();
+
+            RetainedValueCache<K, V> retainedValues = _retainedValues;
+
+            if (retainedValues != null) {
+                retainedValues.clear();
+            }
+
             for (WeakReference<Processor<V, V>> weakProcessors : _weakSources.values()) {
                 Processor<V,V> processor = weakProcessors.get();
                 if (processor != null) {
@@ -822,6 +1966,10 @@ public class SubjectMap<K, V>
             }
             _weakSources.clear();
             _weakCache.clear();
+
+            for (KeyIndex<K, ?> index : _indexes) {
+                index.clear();
+            }
         }
         finally {
             _writeLock.unlock();
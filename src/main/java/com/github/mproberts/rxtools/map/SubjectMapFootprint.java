@@ -0,0 +1,157 @@
+package com.github.mproberts.rxtools.map;
+
+/**
+ * A snapshot of the number of entries held by the internal structures of a {@link SubjectMap}
+ * along with an estimate of the memory they occupy, returned by
+ * {@link SubjectMap#footprint(Weigher) footprint}.
+ * <p>
+ * Byte estimates assume a 64-bit runtime with compressed references and are only intended to
+ * show trends in the size of the map, actual sizes vary between runtimes.
+ */
+public final class SubjectMapFootprint
+{
+    // approximate shallow sizes of the objects held for each entry
+    static final long HASH_ENTRY_BYTES = 40;
+    static final long WEAK_REFERENCE_BYTES = 32;
+    static final long CONNECTOR_BYTES = 64;
+    static final long SOURCE_BYTES = 120;
+    static final long UNBOUND_VALUE_BYTES = 32;
+
+    private final int _cachedObservables;
+    private final int _clearedObservables;
+    private final int _liveSources;
+    private final int _clearedSources;
+    private final int _retainedConnectors;
+    private final int _retainedValues;
+    private final long _retainedValueWeight;
+    private final int _unboundValues;
+    private final long _unboundValueWeight;
+
+    SubjectMapFootprint(int cachedObservables, int clearedObservables, int liveSources, int clearedSources, int retainedConnectors, int retainedValues, long retainedValueWeight, int unboundValues, long unboundValueWeight)
+    {
+        _cachedObservables = cachedObservables;
+        _clearedObservables = clearedObservables;
+        _liveSources = liveSources;
+        _clearedSources = clearedSources;
+        _retainedConnectors = retainedConnectors;
+        _retainedValues = retainedValues;
+        _retainedValueWeight = retainedValueWeight;
+        _unboundValues = unboundValues;
+        _unboundValueWeight = unboundValueWeight;
+    }
+
+    /**
+     * @return the number of observables in the weak cache which are still reachable
+     */
+    public int getCachedObservables()
+    {
+        return _cachedObservables;
+    }
+
+    /**
+     * @return the number of weak cache entries whose observable has been collected but which
+     * have not yet been removed
+     */
+    public int getClearedObservables()
+    {
+        return _clearedObservables;
+    }
+
+    /**
+     * @return the number of subjects which are still reachable
+     */
+    public int getLiveSources()
+    {
+        return _liveSources;
+    }
+
+    /**
+     * @return the number of subject entries whose subject has been collected but which have
+     * not yet been removed
+     */
+    public int getClearedSources()
+    {
+        return _clearedSources;
+    }
+
+    /**
+     * @return the number of observables strongly retained because their key is bound
+     */
+    public int getRetainedConnectors()
+    {
+        return _retainedConnectors;
+    }
+
+    /**
+     * @return the number of values held by live subjects
+     */
+    public int getRetainedValues()
+    {
+        return _retainedValues;
+    }
+
+    /**
+     * @return the total weight of the values held by live subjects, as reported by the weigher
+     */
+    public long getRetainedValueWeight()
+    {
+        return _retainedValueWeight;
+    }
+
+    /**
+     * @return the number of values retained for unbound keys, see
+     * {@link SubjectMap#setMaximumRetainedWeight(long, Weigher) setMaximumRetainedWeight}
+     */
+    public int getUnboundValues()
+    {
+        return _unboundValues;
+    }
+
+    /**
+     * @return the total weight of the values retained for unbound keys, as reported by the
+     * weigher supplied when retention was enabled
+     */
+    public long getUnboundValueWeight()
+    {
+        return _unboundValueWeight;
+    }
+
+    /**
+     * Returns the estimated number of bytes held by the map, including the weight of the
+     * retained values and of the values retained for unbound keys, which are assumed to be
+     * measured in bytes
+     *
+     * @return the estimated size of the map in bytes
+     */
+    public long getEstimatedBytes()
+    {
+        long cacheEntries = _cachedObservables + _clearedObservables;
+        long sourceEntries = _liveSources + _clearedSources;
+
+        return cacheEntries * (HASH_ENTRY_BYTES + WEAK_REFERENCE_BYTES)
+                + _cachedObservables * CONNECTOR_BYTES
+                + sourceEntries * (HASH_ENTRY_BYTES + WEAK_REFERENCE_BYTES)
+                + _liveSources * SOURCE_BYTES
+                + _retainedConnectors * HASH_ENTRY_BYTES
+                + _retainedValueWeight
+                + _unboundValues * (HASH_ENTRY_BYTES + UNBOUND_VALUE_BYTES)
+                + _unboundValueWeight;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SubjectMapFootprint{" +
+                "cachedObservables=" + _cachedObservables +
+                ", clearedObservables=" + _clearedObservables +
+                ", liveSources=" + _liveSources +
+                ", clearedSources=" + _clearedSources +
+                ", retainedConnectors=" + _retainedConnectors +
+                ", retainedValues=" + _retainedValues +
+                ", retainedValueWeight=" + _retainedValueWeight +
+                ", unboundValues=" + _unboundValues +
+                ", unboundValueWeight=" + _unboundValueWeight +
+                ", estimatedBytes=" + getEstimatedBytes() +
+                '}';
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.mproberts.rxtools.map;
+
+/**
+ * A listener notified of the activity of a {@link SubjectMap}, set through
+ * {@link SubjectMap#setMetrics(SubjectMapMetrics) setMetrics}. All methods are no-ops by
+ * default so implementations need only override the measurements they are interested in.
+ * <p>
+ * Methods are called synchronously from the threads using the map, in some cases while
+ * the map's locks are held, implementations must be thread-safe and should return quickly.
+ */
+public abstract class SubjectMapMetrics
+{
+    /**
+     * The system property which, when set to true, installs a listener on each new map which
+     * records Java Flight Recorder events
+     */
+    public static final String FLIGHT_RECORDER_PROPERTY = "rxtools.subjectmap.jfr";
+
+    private static final String FLIGHT_RECORDER_METRICS = "com.github.mproberts.rxtools.map.FlightRecorderSubjectMapMetrics";
+
+    private static class Holder
+    {
+        static final SubjectMapMetrics INSTANCE = createDefaultMetrics();
+    }
+
+    /**
+     * Returns the listener installed on newly constructed maps. This is null, disabling
+     * metrics, unless the {@link #FLIGHT_RECORDER_PROPERTY} system property is set and the
+     * runtime supports Java Flight Recorder, in which case a shared listener recording flight
+     * recorder events is returned. The events are only packaged when the library itself is
+     * built on a JDK providing jdk.jfr, metrics are always disabled by default otherwise
+     *
+     * @return the default listener, or null if metrics are disabled by default
+     */
+    public static SubjectMapMetrics defaultMetrics()
+    {
+        return Holder.INSTANCE;
+    }
+
+    private static SubjectMapMetrics createDefaultMetrics()
+    {
+        if (!Boolean.getBoolean(FLIGHT_RECORDER_PROPERTY)) {
+            return null;
+        }
+
+        try {
+            // loaded reflectively since the events are compiled against jdk.jfr, which is not
+            // available on all of the runtimes this library supports
+            return (SubjectMapMetrics) Class.forName(FLIGHT_RECORDER_METRICS).newInstance();
+        }
+        catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Called for each lookup of a single key
+     *
+     * @param hit true if an observable was already cached for the key, false if the lookup
+     *            escalated to the write lock to create one
+     */
+    public void onGet(boolean hit)
+    {
+    }
+
+    /**
+     * Called for each lookup of a list of keys
+     *
+     * @param keyCount the number of keys requested
+     * @param missCount the number of keys with no cached observable
+     */
+    public void onGetAll(int keyCount, int missCount)
+    {
+    }
+
+    /**
+     * Called after the write lock has been acquired by a lookup which missed the cache
+     *
+     * @param waitNanos the time spent waiting for the lock, in nanoseconds
+     */
+    public void onWriteLockWait(long waitNanos)
+    {
+    }
+
+    /**
+     * Called when a lookup which missed the cache releases the write lock
+     *
+     * @param holdNanos the time the lock was held, in nanoseconds
+     */
+    public void onWriteLockHold(long holdNanos)
+    {
+    }
+
+    /**
+     * Called when a key is bound by its first subscriber
+     */
+    public void onAttach()
+    {
+    }
+
+    /**
+     * Called when a key is unbound after its last subscriber has unsubscribed
+     */
+    public void onDetach()
+    {
+    }
+
+    /**
+     * Called for each value or error emitted to the map
+     *
+     * @param bound true if the key was bound and the emission was delivered, false if the
+     *              emission was dropped
+     */
+    public void onEmit(boolean bound)
+    {
+    }
+
+    /**
+     * Called when a fault completes
+     *
+     * @param keyCount the number of keys faulted together
+     * @param durationNanos the time from subscribing to the fault until it completed
+     * @param error the error the fault failed with, or null if it succeeded
+     */
+    public void onFault(int keyCount, long durationNanos, Throwable error)
+    {
+    }
+}
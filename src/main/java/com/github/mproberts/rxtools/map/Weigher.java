@@ -0,0 +1,24 @@
+package com.github.mproberts.rxtools.map;
+
+/**
+ * Calculates the weight of a value held by a {@link SubjectMap}, typically its approximate
+ * size in bytes.
+ * <p>
+ * Implementations must be safe to call from multiple threads and should be cheap, they may
+ * be called while the map's locks are held.
+ *
+ * @param <K> key type for the collection
+ * @param <V> value type for the collection
+ */
+public interface Weigher<K, V>
+{
+    /**
+     * Returns the weight of the value associated with the key
+     *
+     * @param key the key with which the value is associated
+     * @param value the value to be weighed
+     *
+     * @return the non-negative weight of the value
+     */
+    long weigh(K key, V value);
+}
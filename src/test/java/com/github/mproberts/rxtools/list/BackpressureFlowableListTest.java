@@ -7,6 +7,8 @@ import io.reactivex.schedulers.TestScheduler;
 import io.reactivex.subscribers.TestSubscriber;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.*;
 
 import static org.junit.Assert.*;
@@ -85,13 +87,13 @@ public class BackpressureFlowableListTest
         // should collapse initial reload + 100 inserts into a reload
         Update<Integer> update1 = (Update<Integer>) testSubscriber.values().get(0);
 
-        // should collapse 500 inserts into one changeset
+        // should collapse 500 adjacent inserts into a single ranged change
         Update<Integer> update2 = (Update<Integer>) testSubscriber.values().get(1);
 
         Change firstChange = update1.changes.get(0);
 
         assertEquals(Change.Type.Reloaded, firstChange.type);
-        assertEquals(500, update2.changes.size());
+        assertEquals(Collections.singletonList(Change.inserted(50, 500)), update2.changes);
 
         testSubscriber.dispose();
     }
@@ -120,4 +122,44 @@ public class BackpressureFlowableListTest
 
         testSubscriber.dispose();
     }
+
+    @Test
+    public void testConflatingUpdatesUnderBackpressure()
+    {
+        SimpleFlowableList<Integer> list = new SimpleFlowableList<>();
+        TestSubscriber<Update<Integer>> testSubscriber = new TestSubscriber<>(0);
+
+        list.updates().subscribe(testSubscriber);
+
+        list.add(1);
+        list.add(2);
+
+        testSubscriber.assertValueCount(0);
+        testSubscriber.request(1);
+
+        testSubscriber.assertValues(new Update<>(Arrays.asList(1, 2), Change.reloaded()));
+
+        list.add(3);
+        list.add(4);
+        list.remove(0);
+
+        testSubscriber.request(1);
+
+        testSubscriber.assertValueCount(2);
+        assertEquals(
+                new Update<>(Arrays.asList(2, 3, 4), Arrays.asList(Change.inserted(2, 2), Change.removed(0))),
+                testSubscriber.values().get(1));
+
+        list.add(5);
+        list.remove(3);
+        testSubscriber.request(1);
+
+        // the changes cancel out, so there is nothing to emit
+        testSubscriber.assertValueCount(2);
+
+        list.add(6);
+
+        testSubscriber.assertValueCount(3);
+        assertEquals(new Update<>(Arrays.asList(2, 3, 4, 6), Change.inserted(3)), testSubscriber.values().get(2));
+    }
 }
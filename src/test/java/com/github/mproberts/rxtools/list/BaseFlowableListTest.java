@@ -4,6 +4,8 @@ import io.reactivex.functions.Consumer;
 import io.reactivex.subscribers.TestSubscriber;
 import org.junit.Before;
 import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
 import java.util.List;
 import java.util.ArrayList;
@@ -13,7 +15,10 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class BaseFlowableListTest
 {
@@ -54,7 +59,7 @@ public class BaseFlowableListTest
 
         testSubscriber.assertValues(
                 new Update<>(Arrays.<Integer>asList(), Change.reloaded()),
-                new Update<>(Arrays.asList(1, 2), Arrays.asList(Change.inserted(0), Change.inserted(1))));
+                new Update<>(Arrays.asList(1, 2), Change.inserted(0, 2)));
     }
 
     @Test
@@ -70,7 +75,7 @@ public class BaseFlowableListTest
 
         testSubscriber.assertValues(
                 new Update<>(Arrays.<Integer>asList(), Change.reloaded()),
-                new Update<>(Arrays.asList(1, 2), Arrays.asList(Change.inserted(0), Change.inserted(1))));
+                new Update<>(Arrays.asList(1, 2), Change.inserted(0, 2)));
     }
 
     @Test
@@ -94,12 +99,92 @@ public class BaseFlowableListTest
 
         testSubscriber.assertValues(
                 new Update<>(Arrays.<Integer>asList(), Change.reloaded()),
-                new Update<>(Arrays.asList(1, 3), Arrays.asList(
-                        Change.inserted(0),
-                        Change.inserted(1),
-                        Change.removed(1),
-                        Change.inserted(1)
-                )));
+                new Update<>(Arrays.asList(1, 3), Change.inserted(0, 2)));
+    }
+
+    @Test
+    public void testSubscribersShareSnapshot()
+    {
+        TestSubscriber<Update<Integer>> firstSubscriber = new TestSubscriber<>();
+        TestSubscriber<Update<Integer>> secondSubscriber = new TestSubscriber<>();
+
+        list.updates().subscribe(firstSubscriber);
+
+        list.addAll(Arrays.asList(1, 2, 3));
+
+        list.updates().subscribe(secondSubscriber);
+
+        assertSame(firstSubscriber.values().get(1).list, secondSubscriber.values().get(0).list);
+    }
+
+    @Test
+    public void testUpdateFromSubscriberIsAppliedAfterCurrentUpdate()
+    {
+        final TestSubscriber<Update<Integer>> testSubscriber = new TestSubscriber<>();
+
+        list.updates().skip(1).subscribe(new Consumer<Update<Integer>>() {
+            @Override
+            public void accept(Update<Integer> update)
+            {
+                if (update.list.size() == 1) {
+                    list.add(2);
+                }
+            }
+        });
+        list.updates().skip(1).subscribe(testSubscriber);
+
+        list.add(1);
+
+        testSubscriber.assertValues(
+                new Update<>(Arrays.asList(1), Change.inserted(0)),
+                new Update<>(Arrays.asList(1, 2), Change.inserted(1)));
+    }
+
+    @Test
+    public void testSubscriberExceptionIsThrownToUpdatingThread()
+    {
+        TestSubscriber<Update<Integer>> testSubscriber = new TestSubscriber<>();
+
+        list.updates().subscribe(testSubscriber);
+        list.updates().subscribe(new Subscriber<Update<Integer>>() {
+            @Override
+            public void onSubscribe(Subscription subscription)
+            {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Update<Integer> update)
+            {
+                if (update.list.size() == 1) {
+                    throw new IllegalStateException("failed");
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable)
+            {
+            }
+
+            @Override
+            public void onComplete()
+            {
+            }
+        });
+
+        try {
+            list.add(1);
+            fail("expected the subscriber's exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        // the failed update must not stop later updates from being applied
+        list.add(2);
+
+        assertEquals(3, testSubscriber.valueCount());
+        assertEquals(Arrays.asList(1, 2), testSubscriber.values().get(2).list);
     }
 
     @Test
@@ -124,6 +124,50 @@ public class CachedFlowableListTest
         }
     }
 
+    @Test
+    public void testCachingWithChangesInPlace()
+    {
+        final List<Integer> fetches = new ArrayList<>();
+        TestSubscriber<Update<Integer>> testSubscriber = new TestSubscriber<>();
+
+        SimpleFlowableList<Integer> list = new SimpleFlowableList<>(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        FlowableList<Integer> transformedList = list.map(new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                fetches.add(value);
+
+                return value;
+            }
+        });
+
+        FlowableList<Integer> cachedList = transformedList.cache(5, 5);
+
+        cachedList.updates().subscribe(testSubscriber);
+        {
+            List<Integer> list1 = testSubscriber.values().get(0).list;
+
+            list1.get(3);
+            list1.get(4);
+
+            assertEquals(Arrays.asList(4, 5), fetches);
+        }
+
+        list.set(3, 40);
+        {
+            Update<Integer> update = testSubscriber.values().get(1);
+
+            assertEquals(Arrays.asList(Change.changed(3)), update.changes);
+
+            int value1 = update.list.get(3);
+            int value2 = update.list.get(4);
+
+            // only the changed value is fetched again
+            assertEquals(40, value1);
+            assertEquals(5, value2);
+            assertEquals(Arrays.asList(4, 5, 40), fetches);
+        }
+    }
+
     @Test
     public void testCachingWithRemovals()
     {
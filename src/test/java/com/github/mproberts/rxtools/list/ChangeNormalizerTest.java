@@ -0,0 +1,133 @@
+package com.github.mproberts.rxtools.list;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeNormalizerTest
+{
+    private static List<Change> normalize(int listSize, Change... changes)
+    {
+        return ChangeNormalizer.normalize(ChangeSet.copyOf(Arrays.asList(changes)), listSize);
+    }
+
+    @Test
+    public void testMergesAdjacentChanges()
+    {
+        assertEquals(
+                Arrays.asList(Change.inserted(3, 3), Change.removed(0, 2)),
+                normalize(100, Change.inserted(3), Change.inserted(4), Change.inserted(3), Change.removed(1), Change.removed(0)));
+    }
+
+    @Test
+    public void testCancelsInsertAndRemove()
+    {
+        assertEquals(
+                Collections.emptyList(),
+                normalize(100, Change.inserted(3, 2), Change.removed(4), Change.removed(3)));
+
+        assertEquals(
+                Arrays.asList(Change.removed(2, 2)),
+                normalize(100, Change.inserted(3), Change.removed(2, 3)));
+
+        assertEquals(
+                Arrays.asList(Change.removed(4)),
+                normalize(100, Change.changed(4), Change.removed(4)));
+
+        assertEquals(
+                Arrays.asList(Change.inserted(4, 2)),
+                normalize(100, Change.inserted(4, 2), Change.changed(5)));
+    }
+
+    @Test
+    public void testCollapsesMoveChains()
+    {
+        assertEquals(
+                Arrays.asList(Change.moved(1, 7)),
+                normalize(100, Change.moved(1, 4), Change.moved(4, 9), Change.moved(9, 7)));
+
+        assertEquals(
+                Collections.emptyList(),
+                normalize(100, Change.moved(1, 4, 2), Change.moved(4, 1, 2), Change.moved(3, 3)));
+    }
+
+    @Test
+    public void testFallsBackToReload()
+    {
+        List<Change> scattered = new ArrayList<>();
+
+        for (int i = 0; i < 20; ++i) {
+            scattered.add(Change.changed(i * 2));
+        }
+
+        ChangeSet changes = ChangeSet.copyOf(scattered);
+
+        assertEquals(20, ChangeNormalizer.normalize(changes, 100).size());
+        assertEquals(Collections.singletonList(Change.reloaded()), ChangeNormalizer.normalize(changes, 30));
+        assertEquals(
+                Collections.singletonList(Change.reloaded()),
+                normalize(100, Change.inserted(1), Change.reloaded(), Change.removed(2)));
+    }
+
+    @Test
+    public void testNormalizedChangesAreEquivalent()
+    {
+        Random random = new Random(7);
+
+        for (int run = 0; run < 200; ++run) {
+            List<Integer> before = new ArrayList<>();
+
+            // large enough that the changes never fall back to a reload
+            for (int i = 0; i < 40; ++i) {
+                before.add(i);
+            }
+
+            List<Integer> after = new ArrayList<>(before);
+            List<Change> changes = new ArrayList<>();
+            int next = 100;
+
+            for (int i = 0; i < 10; ++i) {
+                int operation = random.nextInt(4);
+                int size = after.size();
+
+                if (operation == 0 || size < 2) {
+                    int index = random.nextInt(size + 1);
+
+                    after.add(index, next++);
+                    changes.add(Change.inserted(index));
+                }
+                else if (operation == 1) {
+                    int index = random.nextInt(size);
+
+                    after.remove(index);
+                    changes.add(Change.removed(index));
+                }
+                else if (operation == 2) {
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+
+                    after.add(to, after.remove(from));
+                    changes.add(Change.moved(from, to));
+                }
+                else {
+                    int index = random.nextInt(size);
+
+                    after.set(index, next++);
+                    changes.add(Change.changed(index));
+                }
+            }
+
+            List<Change> normalized = ChangeNormalizer.normalize(ChangeSet.copyOf(changes), after.size());
+
+            assertTrue(normalized.size() <= changes.size());
+            assertEquals(after, TestTools.applyChanges(before, after, normalized));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.mproberts.rxtools.list;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeSetTest
+{
+    @Test
+    public void testListView()
+    {
+        List<Change> changes = Arrays.asList(
+                Change.inserted(1, 2),
+                Change.moved(3, 0),
+                Change.changed(4, 2, "payload"),
+                Change.removed(0));
+
+        ChangeSet changeSet = ChangeSet.copyOf(changes);
+
+        assertEquals(changes, changeSet);
+        assertEquals(changeSet, changes);
+        assertEquals(changes.hashCode(), changeSet.hashCode());
+        assertSame(changeSet, ChangeSet.copyOf(changeSet));
+        assertSame(changeSet.get(2), changeSet.get(2));
+        assertFalse(changeSet.containsReload());
+        assertTrue(ChangeSet.of(Change.reloaded()).containsReload());
+    }
+
+    @Test
+    public void testCursor()
+    {
+        ChangeSet changeSet = new ChangeSet.Builder()
+                .add(Change.inserted(1, 2))
+                .add(Change.changed(4, 1, "payload"))
+                .add(Change.reloaded())
+                .build();
+
+        ChangeSet.Cursor cursor = changeSet.cursor();
+
+        assertTrue(cursor.next());
+        assertEquals(Change.Type.Inserted, cursor.type());
+        assertEquals(1, cursor.to());
+        assertEquals(2, cursor.count());
+
+        assertTrue(cursor.next());
+        assertEquals(Change.Type.Changed, cursor.type());
+        assertEquals(4, cursor.from());
+        assertEquals("payload", cursor.payload());
+
+        assertTrue(cursor.next());
+        assertEquals(Change.Type.Reloaded, cursor.type());
+        assertFalse(cursor.next());
+
+        cursor.reset();
+
+        assertTrue(cursor.next());
+        assertEquals(Change.Type.Inserted, cursor.type());
+    }
+
+    @Test
+    public void testOffsetViews()
+    {
+        ChangeSet changeSet = ChangeSet.copyOf(Arrays.asList(Change.inserted(1), Change.moved(2, 5, 3)));
+        ChangeSet shifted = changeSet.offset(10);
+
+        assertEquals(Arrays.asList(Change.inserted(11), Change.moved(12, 15, 3)), shifted);
+        assertEquals(Arrays.asList(Change.inserted(9), Change.moved(10, 13, 3)), shifted.offset(-2));
+        assertEquals(Arrays.asList(Change.inserted(1), Change.moved(2, 5, 3)), changeSet);
+        assertEquals(Arrays.asList(Change.reloaded()), ChangeSet.of(Change.reloaded()).offset(4));
+
+        ChangeSet combined = new ChangeSet.Builder()
+                .addAll(changeSet)
+                .addAll(shifted)
+                .build();
+
+        assertEquals(Arrays.asList(
+                Change.inserted(1),
+                Change.moved(2, 5, 3),
+                Change.inserted(11),
+                Change.moved(12, 15, 3)), combined);
+    }
+
+    @Test
+    public void testAppendMergesContiguousRanges()
+    {
+        ChangeSet.Builder builder = new ChangeSet.Builder();
+
+        builder.append(Change.inserted(4));
+        builder.append(Change.inserted(5));
+        builder.append(Change.inserted(4, 2));
+
+        builder.append(Change.removed(9));
+        builder.append(Change.removed(8));
+        builder.append(Change.removed(8, 2));
+
+        builder.append(Change.changed(2));
+        builder.append(Change.changed(3, 2));
+        builder.append(Change.changed(1, 1, "payload"));
+
+        builder.append(Change.inserted(0));
+
+        assertEquals(Arrays.asList(
+                Change.inserted(4, 4),
+                Change.removed(8, 4),
+                Change.changed(2, 3),
+                Change.changed(1, 1, "payload"),
+                Change.inserted(0)), builder.build());
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.mproberts.rxtools.list;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChangeTest
+{
+    @Test
+    public void testRemapRanges()
+    {
+        Change inserted = Change.inserted(2, 3);
+
+        assertEquals(1, inserted.remap(1));
+        assertEquals(5, inserted.remap(2));
+
+        Change removed = Change.removed(2, 3);
+
+        assertEquals(1, removed.remap(1));
+        assertEquals(-1, removed.remap(2));
+        assertEquals(-1, removed.remap(4));
+        assertEquals(2, removed.remap(5));
+
+        // [a b c d e f g] -> [a e f b c d g]
+        Change moved = Change.moved(1, 3, 3);
+
+        assertEquals(0, moved.remap(0));
+        assertEquals(3, moved.remap(1));
+        assertEquals(5, moved.remap(3));
+        assertEquals(1, moved.remap(4));
+        assertEquals(2, moved.remap(5));
+        assertEquals(6, moved.remap(6));
+    }
+}
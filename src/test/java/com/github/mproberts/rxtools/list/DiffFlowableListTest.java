@@ -1,5 +1,6 @@
 package com.github.mproberts.rxtools.list;
 
+import io.reactivex.functions.Function;
 import io.reactivex.processors.BehaviorProcessor;
 import io.reactivex.subscribers.TestSubscriber;
 import org.junit.Test;
@@ -35,6 +36,57 @@ public class DiffFlowableListTest
                 TestTools.applyChanges(firstUpdate.list, secondUpdate.list, secondUpdate.changes));
     }
 
+    @Test
+    public void testContiguousChangesAreRanges()
+    {
+        BehaviorProcessor<List<Integer>> processor = BehaviorProcessor.create();
+        FlowableList<Integer> list = FlowableList.diff(processor);
+        TestSubscriber<Update<Integer>> test = list.updates().test();
+
+        processor.onNext(Arrays.asList(1, 2, 3, 4, 5, 6));
+        processor.onNext(Arrays.asList(1, 5, 6, 7, 8, 9));
+
+        Update<Integer> update = test.values().get(1);
+
+        assertEquals(Arrays.asList(Change.inserted(6, 3), Change.removed(1, 3)), update.changes);
+        assertEquals(
+                Arrays.asList(1, 5, 6, 7, 8, 9),
+                TestTools.applyChanges(test.values().get(0).list, update.list, update.changes));
+    }
+
+    @Test
+    public void testChangedWithIdentity()
+    {
+        BehaviorProcessor<List<String>> processor = BehaviorProcessor.create();
+        FlowableList<String> list = FlowableList.diff(processor, true, new Function<String, Object>() {
+            @Override
+            public Object apply(String value) {
+                return value.charAt(0);
+            }
+        });
+        TestSubscriber<Update<String>> test = list.updates().test();
+
+        processor.onNext(Arrays.asList("a1", "b1", "c1", "d1", "e1"));
+        processor.onNext(Arrays.asList("a1", "b2", "c2", "d1", "e1"));
+
+        Update<String> update = test.values().get(1);
+
+        assertEquals(Arrays.asList(Change.changed(1, 2)), update.changes);
+
+        processor.onNext(Arrays.asList("a1", "b2", "d1", "e2", "c3"));
+
+        update = test.values().get(2);
+
+        assertEquals(
+                Arrays.asList("a1", "b2", "d1", "e2", "c3"),
+                TestTools.applyChanges(test.values().get(1).list, update.list, update.changes));
+
+        for (Change change : update.changes) {
+            assertNotEquals(Change.Type.Removed, change.type);
+            assertNotEquals(Change.Type.Inserted, change.type);
+        }
+    }
+
     @Test
     public void testSortedMoveOnly()
     {
@@ -24,7 +24,7 @@ public class FlowableListTest
                 list.add(3);
             }
         });
-        assertEquals("list=[3], changes={inserted(0), inserted(1), inserted(2)}", test.values().get(1).toString());
+        assertEquals("list=[3], changes={inserted(0, 3)}", test.values().get(1).toString());
 
         list.remove(1);
         assertEquals("list=[2], changes={removed(1)}", test.values().get(2).toString());
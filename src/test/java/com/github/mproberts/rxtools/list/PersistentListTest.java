@@ -0,0 +1,210 @@
+package com.github.mproberts.rxtools.list;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PersistentListTest
+{
+    private static List<Integer> range(int from, int to)
+    {
+        List<Integer> values = new ArrayList<>();
+
+        for (int i = from; i < to; ++i) {
+            values.add(i);
+        }
+
+        return values;
+    }
+
+    @Test
+    public void testCopyOf()
+    {
+        List<Integer> values = range(0, 1000);
+        PersistentList<Integer> list = PersistentList.copyOf(values);
+
+        assertEquals(values, list);
+        assertEquals(list, values);
+        assertEquals(values.hashCode(), list.hashCode());
+        assertSame(list, PersistentList.copyOf(list));
+        assertSame(PersistentList.empty(), PersistentList.copyOf(Collections.emptyList()));
+    }
+
+    @Test
+    public void testOperationsLeaveOriginalUnchanged()
+    {
+        PersistentList<Integer> original = PersistentList.copyOf(range(0, 100));
+
+        PersistentList<Integer> inserted = original.insert(50, -1);
+        PersistentList<Integer> removed = original.delete(0);
+        PersistentList<Integer> replaced = original.replace(99, -1);
+        PersistentList<Integer> moved = original.move(0, 99);
+
+        assertEquals(range(0, 100), original);
+
+        assertEquals(101, inserted.size());
+        assertEquals(Integer.valueOf(-1), inserted.get(50));
+        assertEquals(range(1, 100), removed);
+        assertEquals(Integer.valueOf(-1), replaced.get(99));
+        assertEquals(Integer.valueOf(0), moved.get(99));
+        assertEquals(Integer.valueOf(1), moved.get(0));
+    }
+
+    @Test
+    public void testRanges()
+    {
+        PersistentList<Integer> list = PersistentList.copyOf(range(0, 500));
+
+        List<Integer> expected = range(0, 500);
+
+        expected.addAll(200, range(1000, 1300));
+
+        assertEquals(expected, list.insertAll(200, range(1000, 1300)));
+
+        expected = range(0, 500);
+        expected.subList(37, 411).clear();
+
+        assertEquals(expected, list.deleteRange(37, 411));
+        assertSame(list, list.deleteRange(10, 10));
+        assertTrue(list.deleteRange(0, 500).isEmpty());
+    }
+
+    @Test
+    public void testIndexOf()
+    {
+        PersistentList<Integer> list = PersistentList.copyOf(Arrays.asList(1, 2, 3, 2, 1));
+
+        assertEquals(1, list.indexOf(2));
+        assertEquals(3, list.lastIndexOf(2));
+        assertEquals(-1, list.indexOf(4));
+        assertTrue(list.contains(3));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testNotModifiable()
+    {
+        PersistentList.copyOf(Arrays.asList(1, 2, 3)).add(4);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorNotModifiable()
+    {
+        Iterator<Integer> iterator = PersistentList.copyOf(Arrays.asList(1, 2, 3)).iterator();
+
+        iterator.next();
+        iterator.remove();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds()
+    {
+        PersistentList.copyOf(Arrays.asList(1, 2, 3)).get(3);
+    }
+
+    @Test
+    public void testRangeEditsKeepChunksOccupied()
+    {
+        Random random = new Random(42);
+        PersistentList<Integer> list = PersistentList.copyOf(range(0, 4000));
+        List<Integer> expected = new ArrayList<>(list);
+
+        for (int i = 0; i < 5000; ++i) {
+            int operation = random.nextInt(3);
+            int size = expected.size();
+
+            if (operation == 0) {
+                int index = random.nextInt(size + 1);
+                List<Integer> values = range(i, i + 1 + random.nextInt(5));
+
+                list = list.insertAll(index, values);
+                expected.addAll(index, values);
+            }
+            else if (operation == 1) {
+                int from = random.nextInt(size);
+                int to = from + random.nextInt(Math.min(5, size - from) + 1);
+
+                list = list.deleteRange(from, to);
+                expected.subList(from, to).clear();
+            }
+            else {
+                int index = random.nextInt(size);
+
+                list = list.delete(index);
+                expected.remove(index);
+            }
+        }
+
+        assertEquals(expected, list);
+
+        // neighbouring chunks are merged whenever they fit in one, so chunks stay about half full
+        assertTrue(list.chunkCount() <= list.size() / 16 + 1);
+    }
+
+    @Test
+    public void testRandomOperations()
+    {
+        Random random = new Random(42);
+        PersistentList<Integer> list = PersistentList.empty();
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < 5000; ++i) {
+            int operation = random.nextInt(10);
+            int size = expected.size();
+
+            if (size == 0 || operation < 4) {
+                int index = random.nextInt(size + 1);
+
+                list = list.insert(index, i);
+                expected.add(index, i);
+            }
+            else if (operation < 6) {
+                int index = random.nextInt(size);
+
+                list = list.delete(index);
+                expected.remove(index);
+            }
+            else if (operation < 7) {
+                int index = random.nextInt(size);
+
+                list = list.replace(index, i);
+                expected.set(index, i);
+            }
+            else if (operation < 8) {
+                int index = random.nextInt(size + 1);
+                List<Integer> values = range(i, i + random.nextInt(80));
+
+                list = list.insertAll(index, values);
+                expected.addAll(index, values);
+            }
+            else if (operation < 9) {
+                int from = random.nextInt(size);
+                int to = from + random.nextInt(Math.min(20, size - from) + 1);
+
+                list = list.deleteRange(from, to);
+                expected.subList(from, to).clear();
+            }
+            else {
+                int from = random.nextInt(size);
+                int to = random.nextInt(size);
+
+                list = list.move(from, to);
+                expected.add(to, expected.remove(from));
+            }
+
+            assertEquals(expected.size(), list.size());
+        }
+
+        assertEquals(expected, list);
+
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+    }
+}
@@ -2,15 +2,140 @@ package com.github.mproberts.rxtools.list;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.Predicate;
 
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.TestScheduler;
 import io.reactivex.subscribers.TestSubscriber;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class SimpleFlowableListTest {
 
+    @Test
+    public void testSet()
+    {
+        SimpleFlowableList<String> list = new SimpleFlowableList<>(Arrays.asList("str1", "str2", "str3"));
+
+        TestSubscriber<Update<String>> testSubscriber = new TestSubscriber<>();
+        list.updates().skip(1).subscribe(testSubscriber);
+
+        list.set(1, "str4");
+        list.set(2, "str5", "payload");
+
+        assertEquals(Arrays.asList(Change.changed(1)), testSubscriber.values().get(0).changes);
+        assertEquals(Arrays.asList("str1", "str4", "str3"), testSubscriber.values().get(0).list);
+        assertEquals(Arrays.asList(Change.changed(2, 1, "payload")), testSubscriber.values().get(1).changes);
+        assertEquals(Arrays.asList("str1", "str4", "str5"), testSubscriber.values().get(1).list);
+    }
+
+    @Test
+    public void testGroupCommitOnScheduler()
+    {
+        TestScheduler scheduler = new TestScheduler();
+        SimpleFlowableList<String> list = new SimpleFlowableList<>(Arrays.asList("str1"));
+
+        list.setGroupCommit(true, scheduler);
+
+        TestSubscriber<Update<String>> testSubscriber = new TestSubscriber<>();
+        list.updates().skip(1).subscribe(testSubscriber);
+
+        list.add("str2");
+        list.add("str3");
+        list.remove(0);
+
+        testSubscriber.assertValueCount(0);
+
+        scheduler.triggerActions();
+
+        testSubscriber.assertValueCount(1);
+        assertEquals(Arrays.asList("str2", "str3"), testSubscriber.values().get(0).list);
+        assertEquals(Arrays.asList(Change.inserted(1, 2), Change.removed(0)), testSubscriber.values().get(0).changes);
+
+        list.setGroupCommit(false);
+        list.add("str4");
+
+        testSubscriber.assertValueCount(2);
+        assertEquals(Arrays.asList(Change.inserted(2)), testSubscriber.values().get(1).changes);
+    }
+
+    @Test
+    public void testGroupCommitFoldsOperationsMadeDuringUpdate()
+    {
+        final SimpleFlowableList<String> list = new SimpleFlowableList<>();
+
+        list.setGroupCommit(true);
+
+        TestSubscriber<Update<String>> testSubscriber = new TestSubscriber<>();
+        list.updates().skip(1).subscribe(new Consumer<Update<String>>() {
+            @Override
+            public void accept(Update<String> update)
+            {
+                if (update.list.size() == 1) {
+                    list.add("str2");
+                    list.add("str3");
+                }
+            }
+        });
+        list.updates().skip(1).subscribe(testSubscriber);
+
+        list.add("str1");
+
+        testSubscriber.assertValueCount(2);
+        assertEquals(Arrays.asList(Change.inserted(0)), testSubscriber.values().get(0).changes);
+        assertEquals(Arrays.asList("str1", "str2", "str3"), testSubscriber.values().get(1).list);
+        assertEquals(Arrays.asList(Change.inserted(1, 2)), testSubscriber.values().get(1).changes);
+    }
+
+    @Test
+    public void testUnobservedOperationsSkipChanges()
+    {
+        final List<ChangeSet.Builder> builders = new ArrayList<>();
+        SimpleFlowableList<String> list = new SimpleFlowableList<>(Arrays.asList("str1"));
+        SimpleFlowableList.Operation<String> operation = new SimpleFlowableList.Operation<String>() {
+            @Override
+            public PersistentList<String> apply(PersistentList<String> list, ChangeSet.Builder changes)
+            {
+                builders.add(changes);
+
+                if (changes != null) {
+                    changes.add(Change.inserted(list.size()));
+                }
+
+                return list.insert(list.size(), "str" + (list.size() + 1));
+            }
+        };
+
+        list.applyOperation(operation);
+
+        TestSubscriber<Update<String>> testSubscriber = new TestSubscriber<>();
+        list.updates().subscribe(testSubscriber);
+
+        list.applyOperation(operation);
+
+        testSubscriber.dispose();
+
+        list.applyOperation(operation);
+
+        assertNull(builders.get(0));
+        assertNotNull(builders.get(1));
+        assertNull(builders.get(2));
+
+        testSubscriber.assertValues(
+                new Update<>(Arrays.asList("str1", "str2"), Change.reloaded()),
+                new Update<>(Arrays.asList("str1", "str2", "str3"), Change.inserted(2)));
+
+        testSubscriber = new TestSubscriber<>();
+        list.updates().subscribe(testSubscriber);
+
+        testSubscriber.assertValue(new Update<>(Arrays.asList("str1", "str2", "str3", "str4"), Change.reloaded()));
+    }
+
     @Test
     public void testRemoveWithPredicate()
     {
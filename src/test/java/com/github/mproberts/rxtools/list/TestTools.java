@@ -1,6 +1,7 @@
 package com.github.mproberts.rxtools.list;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class TestTools
@@ -18,14 +19,20 @@ public class TestTools
         for (Change change : changes) {
             switch (change.type) {
                 case Inserted:
-                    target.add(change.to, null);
+                    target.addAll(change.to, Collections.<T>nCopies(change.count, null));
                     break;
                 case Moved:
-                    T item = target.remove(change.from);
-                    target.add(change.to, item);
+                    List<T> range = target.subList(change.from, change.from + change.count);
+                    List<T> items = new ArrayList<>(range);
+
+                    range.clear();
+                    target.addAll(change.to, items);
                     break;
                 case Removed:
-                    target.remove(change.from);
+                    target.subList(change.from, change.from + change.count).clear();
+                    break;
+                case Changed:
+                    Collections.fill(target.subList(change.from, change.from + change.count), null);
                     break;
             }
         }
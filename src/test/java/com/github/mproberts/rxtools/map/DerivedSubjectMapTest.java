@@ -0,0 +1,140 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DerivedSubjectMapTest
+{
+    private SubjectMap<String, Integer> source;
+    private AtomicInteger faultCount;
+    private AtomicInteger transformCount;
+    private DerivedSubjectMap<String, String> derived;
+
+    @Before
+    public void setup()
+    {
+        source = new SubjectMap<>();
+        faultCount = new AtomicInteger(0);
+        transformCount = new AtomicInteger(0);
+
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return Single.just(faultCount.incrementAndGet());
+            }
+        });
+
+        derived = source.mapValues(new Function<Integer, String>() {
+            @Override
+            public String apply(Integer value) throws Exception {
+                transformCount.incrementAndGet();
+
+                return "value-" + value;
+            }
+        });
+    }
+
+    @Test
+    public void testSharedUpstreamSubscription()
+    {
+        TestSubscriber<String> testSubscriber1 = derived.get("hello").test();
+        TestSubscriber<String> testSubscriber2 = derived.get("hello").test();
+
+        testSubscriber1.assertValues("value-1");
+        testSubscriber2.assertValues("value-1");
+
+        assertEquals(1, faultCount.get());
+        assertEquals(1, transformCount.get());
+
+        source.onNext("hello", 5);
+
+        testSubscriber1.assertValues("value-1", "value-5");
+        testSubscriber2.assertValues("value-1", "value-5");
+
+        assertEquals(2, transformCount.get());
+
+        testSubscriber1.dispose();
+        testSubscriber2.dispose();
+    }
+
+    @Test
+    public void testDetachAndReattach()
+    {
+        TestSubscriber<String> testSubscriber1 = derived.get("hello").test();
+
+        testSubscriber1.assertValues("value-1");
+        testSubscriber1.dispose();
+
+        // once detached, emissions are no longer delivered
+        source.onNext("hello", 5);
+
+        assertEquals(1, transformCount.get());
+
+        TestSubscriber<String> testSubscriber2 = derived.get("hello").test();
+
+        testSubscriber2.assertValues("value-2");
+
+        testSubscriber2.dispose();
+    }
+
+    @Test
+    public void testResubscribeAfterError()
+    {
+        Flowable<String> hello = derived.get("hello");
+        TestSubscriber<String> testSubscriber1 = hello.test();
+
+        testSubscriber1.assertValues("value-1");
+
+        source.onError("hello", new RuntimeException("failed"));
+
+        testSubscriber1.assertError(RuntimeException.class);
+
+        // the errored key is bound again through the map rather than the observable it discarded
+        TestSubscriber<String> testSubscriber2 = hello.test();
+        TestSubscriber<String> testSubscriber3 = derived.get("hello").test();
+
+        testSubscriber2.assertNoErrors();
+        testSubscriber2.assertValues("value-2");
+        testSubscriber3.assertValues("value-2");
+
+        assertEquals(2, faultCount.get());
+
+        testSubscriber2.dispose();
+        testSubscriber3.dispose();
+    }
+
+    @Test
+    public void testChainedViews()
+    {
+        DerivedSubjectMap<String, Integer> lengths = derived.mapValues(new Function<String, Integer>() {
+            @Override
+            public Integer apply(String value) throws Exception {
+                return value.length();
+            }
+        });
+
+        List<Flowable<Integer>> values = lengths.getAll(Arrays.asList("a", "b"));
+
+        TestSubscriber<Integer> testSubscriber1 = values.get(0).test();
+        TestSubscriber<String> testSubscriber2 = derived.get("a").test();
+
+        testSubscriber1.assertValues(7);
+        testSubscriber2.assertValues("value-1");
+
+        assertEquals(1, faultCount.get());
+        assertEquals(1, transformCount.get());
+
+        testSubscriber1.dispose();
+        testSubscriber2.dispose();
+    }
+}
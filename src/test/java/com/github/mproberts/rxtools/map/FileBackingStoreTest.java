@@ -0,0 +1,219 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FileBackingStoreTest
+{
+    private File directory;
+    private FileBackingStore<String, Integer> store;
+    private SubjectMap<String, Integer> source;
+    private AtomicInteger faultCount;
+
+    @Before
+    public void setup() throws IOException
+    {
+        directory = Files.createTempDirectory("rxtools-store").toFile();
+        store = new FileBackingStore<>(directory);
+        source = new SubjectMap<>();
+        faultCount = new AtomicInteger(0);
+
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return Single.just(100 + faultCount.incrementAndGet());
+            }
+        });
+    }
+
+    @After
+    public void teardown()
+    {
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        directory.delete();
+    }
+
+    @Test
+    public void testStoreRoundTrip() throws Exception
+    {
+        assertNull(store.get("missing"));
+
+        store.put("hello", 1);
+        store.put("hello", 2);
+
+        assertEquals(Integer.valueOf(2), store.get("hello"));
+        assertEquals(Integer.valueOf(2), new FileBackingStore<String, Integer>(directory).get("hello"));
+    }
+
+    @Test
+    public void testHitIsServedThenRevalidated() throws Exception
+    {
+        final SingleSubject<Integer> revalidation = SingleSubject.create();
+
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return revalidation;
+            }
+        });
+
+        store.put("hello", 7);
+
+        source.setBackingStore(store);
+
+        TestSubscriber<Integer> testSubscriber = source.get("hello").test();
+
+        testSubscriber.assertValues(7);
+
+        revalidation.onSuccess(101);
+
+        testSubscriber.assertValues(7, 101);
+
+        // the revalidated value replaces the stored value
+        assertEquals(Integer.valueOf(101), store.get("hello"));
+
+        source.onNext("hello", 5);
+
+        assertEquals(Integer.valueOf(5), store.get("hello"));
+    }
+
+    @Test
+    public void testHitSkipsFaultWithoutRevalidation() throws Exception
+    {
+        store.put("hello", 7);
+
+        source.setBackingStore(store, false, Schedulers.trampoline());
+
+        TestSubscriber<Integer> hit = source.get("hello").test();
+        TestSubscriber<Integer> miss = source.get("world").test();
+
+        hit.assertValues(7);
+        miss.assertValues(101);
+
+        assertEquals(1, faultCount.get());
+        assertEquals(Integer.valueOf(101), store.get("world"));
+    }
+
+    @Test
+    public void testUnboundEmissionReplacesStoredValue() throws Exception
+    {
+        store.put("hello", 7);
+
+        source.setBackingStore(store, false, Schedulers.trampoline());
+
+        source.onNext("hello", 8);
+
+        assertEquals(Integer.valueOf(8), store.get("hello"));
+
+        source.get("hello").test().assertValues(8);
+
+        assertEquals(0, faultCount.get());
+    }
+
+    @Test
+    public void testStoreRemoval() throws Exception
+    {
+        store.put("hello", 1);
+        store.put("world", 2);
+        store.put("other", 3);
+
+        store.remove("hello");
+        store.remove("missing");
+
+        store.removeIf(new Predicate<String>() {
+            @Override
+            public boolean test(String key)
+            {
+                return key.startsWith("w");
+            }
+        });
+
+        assertNull(store.get("hello"));
+        assertNull(store.get("world"));
+        assertEquals(Integer.valueOf(3), store.get("other"));
+    }
+
+    @Test
+    public void testInvalidationRemovesStoredValue() throws Exception
+    {
+        store.put("hello", 7);
+        store.put("world", 8);
+        store.put("tenant:1", 9);
+        store.put("other", 10);
+
+        source.setBackingStore(store, false, Schedulers.trampoline());
+
+        // none of the keys are bound, their stored values must still be discarded
+        source.faultIfBound("hello").test().assertComplete();
+        source.onError("world", new RuntimeException("failed"));
+        source.faultIfBoundMatching(new Predicate<String>() {
+            @Override
+            public boolean test(String key)
+            {
+                return key.startsWith("tenant:");
+            }
+        }).test().assertComplete();
+
+        assertNull(store.get("hello"));
+        assertNull(store.get("world"));
+        assertNull(store.get("tenant:1"));
+        assertEquals(Integer.valueOf(10), store.get("other"));
+
+        source.get("hello").test().assertValues(101);
+
+        assertEquals(1, faultCount.get());
+
+        source.faultAllBound().test().assertComplete();
+
+        assertNull(store.get("other"));
+    }
+
+    @Test
+    public void testObserveAllServesHitsWithoutRevalidation() throws Exception
+    {
+        final AtomicInteger multiFaultCount = new AtomicInteger(0);
+
+        source.setMultiFaultHandler(new Function<List<String>, Single<List<Integer>>>() {
+            @Override
+            public Single<List<Integer>> apply(List<String> keys) throws Exception {
+                multiFaultCount.incrementAndGet();
+
+                assertEquals(Arrays.asList("b"), keys);
+
+                return Single.just(Arrays.asList(2));
+            }
+        });
+
+        store.put("a", 1);
+
+        source.setBackingStore(store, false, Schedulers.trampoline());
+
+        source.observeAll(Arrays.asList("a", "b")).test().assertValueCount(1);
+
+        assertEquals(1, multiFaultCount.get());
+        assertEquals(Integer.valueOf(2), store.get("b"));
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.mproberts.rxtools.map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrequencySketchTest
+{
+    @Test
+    public void testGrowingKeepsFrequencies()
+    {
+        FrequencySketch sketch = new FrequencySketch();
+
+        for (int i = 0; i < 5; ++i) {
+            sketch.increment("hello");
+        }
+
+        sketch.increment("world");
+
+        sketch.ensureCapacity(10000);
+
+        assertTrue(sketch.frequency("hello") >= 5);
+        assertTrue(sketch.frequency("world") >= 1);
+        assertTrue(sketch.frequency("hello") > sketch.frequency("world"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InMemorySubjectMapMetricsTest
+{
+    private SubjectMap<String, Integer> source;
+    private InMemorySubjectMapMetrics metrics;
+
+    @Before
+    public void setup()
+    {
+        source = new SubjectMap<>();
+        metrics = new InMemorySubjectMapMetrics();
+
+        source.setMetrics(metrics);
+    }
+
+    @Test
+    public void testHitsAndMisses()
+    {
+        TestSubscriber<Integer> testSubscriber = source.get("hello").test();
+
+        source.get("hello");
+        source.getAll(Arrays.asList("hello", "world"));
+
+        assertEquals(2, metrics.hits());
+        assertEquals(2, metrics.misses());
+        assertEquals(2, metrics.writeLockWait().count());
+        assertEquals(2, metrics.writeLockHold().count());
+
+        testSubscriber.dispose();
+    }
+
+    @Test
+    public void testBoundKeysAndEmissions()
+    {
+        TestSubscriber<Integer> testSubscriber1 = source.get("hello").test();
+        TestSubscriber<Integer> testSubscriber2 = source.get("world").test();
+
+        assertEquals(2, metrics.boundKeys());
+
+        source.onNext("hello", 1);
+        source.onNext("unbound", 2);
+
+        assertEquals(1, metrics.emissions());
+        assertEquals(1, metrics.droppedEmissions());
+
+        testSubscriber1.dispose();
+
+        assertEquals(1, metrics.boundKeys());
+        assertEquals(2, metrics.attaches());
+        assertEquals(1, metrics.detaches());
+
+        testSubscriber2.dispose();
+    }
+
+    @Test
+    public void testFaultMeasurements()
+    {
+        source.setMultiFaultHandler(new Function<List<String>, Single<List<Integer>>>() {
+            @Override
+            public Single<List<Integer>> apply(List<String> keys) throws Exception {
+                List<Integer> values = new ArrayList<>();
+
+                for (String key : keys) {
+                    values.add(key.length());
+                }
+
+                return Single.just(values);
+            }
+        });
+
+        TestSubscriber<Integer> testSubscriber = source.get("hello").test();
+
+        testSubscriber.assertValues(5);
+
+        source.faultIfBound("hello").test().assertComplete();
+        source.faultIfBound("unbound").test().assertComplete();
+
+        InMemorySubjectMapMetrics.Histogram batchSize = metrics.faultBatchSize();
+
+        assertEquals(2, batchSize.count());
+        assertEquals(1, batchSize.max());
+        assertEquals(2, metrics.faultLatency().count());
+        assertEquals(0, metrics.faultErrors());
+
+        testSubscriber.dispose();
+    }
+
+    @Test
+    public void testFaultErrors()
+    {
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return Single.error(new IllegalStateException());
+            }
+        });
+
+        source.get("hello").test().assertError(IllegalStateException.class);
+
+        assertEquals(1, metrics.faultErrors());
+        assertEquals(1, metrics.faultLatency().count());
+    }
+
+    @Test
+    public void testHistogramPercentiles()
+    {
+        InMemorySubjectMapMetrics.Histogram histogram = new InMemorySubjectMapMetrics.Histogram();
+
+        for (int i = 1; i <= 100; ++i) {
+            histogram.record(i);
+        }
+
+        assertEquals(100, histogram.count());
+        assertEquals(100, histogram.max());
+        assertEquals(50.5, histogram.mean(), 0.001);
+
+        // percentiles are accurate to the power of two containing them
+        long median = histogram.percentile(50);
+
+        assertTrue(median >= 50 && median < 100);
+        assertEquals(100, histogram.percentile(100));
+    }
+}
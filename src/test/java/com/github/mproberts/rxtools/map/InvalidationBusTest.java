@@ -0,0 +1,198 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InvalidationBusTest
+{
+    private TestScheduler scheduler;
+    private LoopbackInvalidationTransport<String, Integer> transport;
+    private InvalidationBus<String, Integer> node1Bus;
+    private InvalidationBus<String, Integer> node2Bus;
+    private SubjectMap<String, Integer> node1;
+    private SubjectMap<String, Integer> node2;
+    private List<List<String>> node1Faults;
+    private List<List<String>> node2Faults;
+
+    private static SubjectMap<String, Integer> createNode(final List<List<String>> faults)
+    {
+        final AtomicInteger counter = new AtomicInteger(0);
+        SubjectMap<String, Integer> map = new SubjectMap<>();
+
+        map.setMultiFaultHandler(new Function<List<String>, Single<List<Integer>>>() {
+            @Override
+            public Single<List<Integer>> apply(List<String> keys) throws Exception {
+                faults.add(new ArrayList<>(keys));
+
+                List<Integer> values = new ArrayList<>();
+
+                for (int i = 0; i < keys.size(); ++i) {
+                    values.add(counter.incrementAndGet());
+                }
+
+                return Single.just(values);
+            }
+        });
+
+        return map;
+    }
+
+    @Before
+    public void setup()
+    {
+        scheduler = new TestScheduler();
+        transport = new LoopbackInvalidationTransport<>();
+        node1Faults = new ArrayList<>();
+        node2Faults = new ArrayList<>();
+        node1 = createNode(node1Faults);
+        node2 = createNode(node2Faults);
+        node1Bus = new InvalidationBus<>(transport, 10, TimeUnit.MILLISECONDS, scheduler);
+        node2Bus = new InvalidationBus<>(transport, 10, TimeUnit.MILLISECONDS, scheduler);
+
+        node1Bus.connect(node1);
+        node2Bus.connect(node2);
+    }
+
+    @After
+    public void teardown()
+    {
+        node1Bus.dispose();
+        node2Bus.dispose();
+    }
+
+    @Test
+    public void testOnlyBoundKeysAreFaulted()
+    {
+        TestSubscriber<Integer> node1a = node1.get("a").test();
+        TestSubscriber<Integer> node2b = node2.get("b").test();
+
+        node1Faults.clear();
+        node2Faults.clear();
+
+        node1Bus.publish("a");
+        node1Bus.publish("b");
+        node2Bus.publish("c");
+
+        // nothing is sent until the tick elapses
+        assertTrue(node1Faults.isEmpty());
+
+        scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, node1Faults.size());
+        assertEquals(1, node2Faults.size());
+        assertEquals("a", node1Faults.get(0).get(0));
+        assertEquals("b", node2Faults.get(0).get(0));
+
+        node1a.assertValues(1, 2);
+        node2b.assertValues(1, 2);
+    }
+
+    @Test
+    public void testInvalidationsBatchedPerTick()
+    {
+        TestSubscriber<Integer> node1a = node1.get("a").test();
+        TestSubscriber<Integer> node1b = node1.get("b").test();
+
+        node1Faults.clear();
+
+        node2Bus.publish("a");
+        node2Bus.publish("b");
+        node2Bus.publish("a");
+
+        scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        // both keys are faulted together, once each
+        assertEquals(1, node1Faults.size());
+        assertEquals(2, node1Faults.get(0).size());
+
+        node1a.assertValueCount(2);
+        node1b.assertValueCount(2);
+    }
+
+    @Test
+    public void testPushedValues()
+    {
+        TestSubscriber<Integer> node2a = node2.get("a").test();
+
+        node2Faults.clear();
+
+        node1Bus.publish("a", 42);
+        node1Bus.publish("b", 43);
+
+        scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        node2a.assertValues(1, 42);
+
+        assertTrue(node2Faults.isEmpty());
+    }
+
+    @Test
+    public void testFailedSendDoesNotStopLaterBatches()
+    {
+        final List<Throwable> errors = new ArrayList<>();
+        final AtomicInteger sendCount = new AtomicInteger(0);
+
+        RxJavaPlugins.setErrorHandler(new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable)
+            {
+                errors.add(throwable);
+            }
+        });
+
+        try {
+            InvalidationBus<String, Integer> failingBus = new InvalidationBus<>(new InvalidationTransport<String, Integer>() {
+                @Override
+                public void send(List<Invalidation<String, Integer>> invalidations) throws Exception
+                {
+                    if (sendCount.incrementAndGet() == 1) {
+                        throw new IOException("unreachable");
+                    }
+
+                    transport.send(invalidations);
+                }
+
+                @Override
+                public Flowable<List<Invalidation<String, Integer>>> receive()
+                {
+                    return transport.receive();
+                }
+            }, 10, TimeUnit.MILLISECONDS, scheduler);
+
+            TestSubscriber<Integer> node1a = node1.get("a").test();
+
+            failingBus.publish("a");
+            scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+            assertEquals(1, errors.size());
+            node1a.assertValueCount(1);
+
+            failingBus.publish("a");
+            scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+            assertEquals(2, sendCount.get());
+            node1a.assertValueCount(2);
+
+            failingBus.dispose();
+        }
+        finally {
+            RxJavaPlugins.reset();
+        }
+    }
+}
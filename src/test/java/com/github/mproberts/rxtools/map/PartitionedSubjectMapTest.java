@@ -0,0 +1,172 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PartitionedSubjectMapTest
+{
+    private PartitionedSubjectMap<String, Integer> source;
+
+    @After
+    public void teardown()
+    {
+        if (source != null) {
+            source.dispose();
+        }
+    }
+
+    private void useTrampolinePartitions()
+    {
+        source = new PartitionedSubjectMap<>(Arrays.<Scheduler>asList(Schedulers.trampoline(), Schedulers.trampoline()));
+    }
+
+    @Test
+    public void testFaultOnFirstAttachOnly()
+    {
+        final AtomicInteger faultCount = new AtomicInteger(0);
+
+        useTrampolinePartitions();
+
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return Single.just(faultCount.incrementAndGet());
+            }
+        });
+
+        TestSubscriber<Integer> testSubscriber1 = source.get("hello").test();
+        TestSubscriber<Integer> testSubscriber2 = source.get("hello").test();
+
+        testSubscriber1.assertValues(1);
+        testSubscriber2.assertValues(1);
+
+        source.onNext("hello", 5);
+
+        testSubscriber1.assertValues(1, 5);
+        testSubscriber2.assertValues(1, 5);
+
+        testSubscriber1.dispose();
+        testSubscriber2.dispose();
+
+        // once unbound, emissions are dropped and the next subscription faults again
+        source.onNext("hello", 6);
+
+        source.get("hello").test().assertValues(2);
+    }
+
+    @Test
+    public void testFaultResultsAreDeliveredOnPartitionWorker()
+    {
+        final AtomicInteger workerCount = new AtomicInteger(0);
+        Scheduler countingScheduler = new Scheduler() {
+            @Override
+            public Worker createWorker()
+            {
+                workerCount.incrementAndGet();
+
+                return Schedulers.trampoline().createWorker();
+            }
+        };
+
+        source = new PartitionedSubjectMap<>(Collections.singletonList(countingScheduler));
+
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return key.equals("error") ? Single.<Integer>error(new IllegalStateException()) : Single.just(1);
+            }
+        });
+
+        source.get("hello").test().assertValues(1);
+        source.get("error").test().assertError(IllegalStateException.class);
+
+        // every fault result was handed back through the partition's own worker
+        assertEquals(1, workerCount.get());
+    }
+
+    @Test
+    public void testErrorUnbindsKey()
+    {
+        useTrampolinePartitions();
+
+        TestSubscriber<Integer> testSubscriber1 = source.get("hello").test();
+
+        source.onError("hello", new IllegalStateException());
+
+        testSubscriber1.assertError(IllegalStateException.class);
+
+        TestSubscriber<Integer> testSubscriber2 = source.get("hello").test();
+
+        source.onNext("hello", 3);
+
+        testSubscriber2.assertValues(3);
+    }
+
+    @Test
+    public void testConcurrentWritersAcrossPartitions() throws InterruptedException
+    {
+        final int keyCount = 64;
+        final int writesPerKey = 200;
+
+        source = new PartitionedSubjectMap<>(4);
+
+        List<TestSubscriber<Integer>> subscribers = new ArrayList<>();
+
+        for (int i = 0; i < keyCount; ++i) {
+            subscribers.add(source.get("key-" + i).test());
+        }
+
+        final CountDownLatch done = new CountDownLatch(4);
+
+        for (int t = 0; t < 4; ++t) {
+            final int offset = t;
+
+            new Thread() {
+                @Override
+                public void run()
+                {
+                    for (int i = offset; i < keyCount; i += 4) {
+                        for (int j = 1; j <= writesPerKey; ++j) {
+                            source.onNext("key-" + i, j);
+                        }
+                    }
+
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        for (TestSubscriber<Integer> subscriber : subscribers) {
+            subscriber.awaitCount(writesPerKey);
+            subscriber.assertValueCount(writesPerKey);
+
+            // each key is owned by a single loop, so emissions are never reordered
+            assertEquals(Integer.valueOf(writesPerKey), subscriber.values().get(writesPerKey - 1));
+        }
+
+        int total = 0;
+
+        for (int count : source.boundKeyCounts()) {
+            total += count;
+        }
+
+        assertEquals(keyCount, total);
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.mproberts.rxtools.map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RetainedValueCacheTest
+{
+    private static final Weigher<String, Integer> VALUE_WEIGHER = new Weigher<String, Integer>() {
+        @Override
+        public long weigh(String key, Integer value)
+        {
+            return value;
+        }
+    };
+
+    @Test
+    public void testWeightBounded()
+    {
+        RetainedValueCache<String, Integer> cache = new RetainedValueCache<>(1000, VALUE_WEIGHER);
+
+        for (int i = 0; i < 100; ++i) {
+            cache.put("key-" + i, 100);
+
+            assertTrue(cache.weight() <= 1000);
+        }
+
+        // values heavier than the maximum are never retained
+        cache.put("huge", 2000);
+
+        assertFalse(cache.contains("huge"));
+        assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    public void testFrequentValuesSurviveScan()
+    {
+        RetainedValueCache<String, Integer> cache = new RetainedValueCache<>(1000, VALUE_WEIGHER);
+
+        for (int i = 0; i < 5; ++i) {
+            String key = "hot-" + i;
+
+            for (int j = 0; j < 5; ++j) {
+                cache.take(key);
+            }
+
+            cache.put(key, 100);
+        }
+
+        // a scan of keys which are each bound only once should not displace the hot keys
+        for (int i = 0; i < 1000; ++i) {
+            String key = "cold-" + i;
+
+            cache.take(key);
+            cache.put(key, 100);
+        }
+
+        for (int i = 0; i < 5; ++i) {
+            assertTrue(cache.contains("hot-" + i));
+        }
+    }
+
+    @Test
+    public void testHeavierValueEvictedOnTie()
+    {
+        RetainedValueCache<String, Integer> cache = new RetainedValueCache<>(1000, VALUE_WEIGHER);
+
+        cache.put("heavy", 900);
+        cache.put("light-1", 50);
+        cache.put("light-2", 50);
+        cache.put("light-3", 50);
+
+        assertFalse(cache.contains("heavy"));
+        assertTrue(cache.contains("light-1"));
+        assertTrue(cache.contains("light-2"));
+    }
+
+    @Test
+    public void testRejectedCandidateEvictsNothing()
+    {
+        RetainedValueCache<String, Integer> cache = new RetainedValueCache<>(1000, VALUE_WEIGHER);
+
+        for (int i = 0; i < 5; ++i) {
+            cache.take("frequent");
+        }
+
+        for (int i = 0; i < 3; ++i) {
+            cache.take("candidate");
+        }
+
+        cache.put("rare", 500);
+        cache.put("frequent", 490);
+
+        // the candidate beats the rare value but not the frequent one, which it would also displace
+        cache.put("candidate", 600);
+
+        assertFalse(cache.contains("candidate"));
+        assertTrue(cache.contains("rare"));
+        assertTrue(cache.contains("frequent"));
+        assertEquals(990, cache.weight());
+    }
+
+    @Test
+    public void testReplaceAndTake()
+    {
+        RetainedValueCache<String, Integer> cache = new RetainedValueCache<>(1000, VALUE_WEIGHER);
+
+        cache.put("hello", 10);
+        cache.replace("hello", 20);
+        cache.replace("world", 30);
+
+        assertEquals(20, cache.weight());
+        assertFalse(cache.contains("world"));
+        assertEquals(Integer.valueOf(20), cache.take("hello"));
+        assertNull(cache.take("hello"));
+        assertEquals(0, cache.weight());
+    }
+}
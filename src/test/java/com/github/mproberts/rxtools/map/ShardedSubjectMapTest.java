@@ -0,0 +1,165 @@
+package com.github.mproberts.rxtools.map;
+
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ShardedSubjectMapTest
+{
+    private static final List<String> nodeIds = Arrays.asList("node-1", "node-2", "node-3");
+
+    private InProcessShardTransport<String, Integer> transport;
+    private Map<String, SubjectMap<String, Integer>> locals;
+    private Map<String, AtomicInteger> faultCounts;
+    private Map<String, ShardedSubjectMap<String, Integer>> nodes;
+
+    @Before
+    public void setup()
+    {
+        transport = new InProcessShardTransport<>();
+        locals = new HashMap<>();
+        faultCounts = new HashMap<>();
+        nodes = new HashMap<>();
+
+        for (String nodeId : nodeIds) {
+            final AtomicInteger faultCount = new AtomicInteger(0);
+            SubjectMap<String, Integer> local = new SubjectMap<>();
+
+            local.setFaultHandler(new Function<String, Single<Integer>>() {
+                @Override
+                public Single<Integer> apply(String key) throws Exception {
+                    return Single.just(faultCount.incrementAndGet());
+                }
+            });
+
+            transport.register(nodeId, local);
+
+            locals.put(nodeId, local);
+            faultCounts.put(nodeId, faultCount);
+            nodes.put(nodeId, new ShardedSubjectMap<>(nodeId, local, transport, nodeIds));
+        }
+    }
+
+    private String keyOwnedBy(String nodeId)
+    {
+        for (int i = 0; ; ++i) {
+            String key = "key-" + i;
+
+            if (nodes.get(nodeId).ownerOf(key).equals(nodeId)) {
+                return key;
+            }
+        }
+    }
+
+    @Test
+    public void testAllNodesAgreeOnOwnership()
+    {
+        Map<String, Integer> ownedCounts = new HashMap<>();
+
+        for (int i = 0; i < 3000; ++i) {
+            String key = "key-" + i;
+            String owner = nodes.get("node-1").ownerOf(key);
+
+            assertEquals(owner, nodes.get("node-2").ownerOf(key));
+            assertEquals(owner, nodes.get("node-3").ownerOf(key));
+
+            Integer count = ownedCounts.get(owner);
+
+            ownedCounts.put(owner, count == null ? 1 : count + 1);
+        }
+
+        // every node should own a reasonable share of the keys
+        for (String nodeId : nodeIds) {
+            assertTrue(ownedCounts.get(nodeId) > 500);
+        }
+    }
+
+    @Test
+    public void testRemoteKeysAreServedByOwner()
+    {
+        String key = keyOwnedBy("node-2");
+
+        TestSubscriber<Integer> subscriber1 = nodes.get("node-1").get(key).test();
+        TestSubscriber<Integer> subscriber3 = nodes.get("node-3").get(key).test();
+
+        subscriber1.assertValues(1);
+        subscriber3.assertValues(1);
+
+        assertEquals(0, faultCounts.get("node-1").get());
+        assertEquals(1, faultCounts.get("node-2").get());
+        assertEquals(0, faultCounts.get("node-3").get());
+
+        nodes.get("node-3").onNext(key, 10);
+
+        subscriber1.assertValues(1, 10);
+        subscriber3.assertValues(1, 10);
+    }
+
+    @Test
+    public void testRebalanceOnMembershipChange()
+    {
+        String key = keyOwnedBy("node-2");
+
+        TestSubscriber<Integer> subscriber = nodes.get("node-1").get(key).test();
+
+        subscriber.assertValues(1);
+
+        List<String> remaining = Arrays.asList("node-1", "node-3");
+
+        for (ShardedSubjectMap<String, Integer> node : nodes.values()) {
+            node.setMembers(remaining);
+        }
+
+        String newOwner = nodes.get("node-1").ownerOf(key);
+
+        assertNotEquals("node-2", newOwner);
+        assertEquals(1, faultCounts.get(newOwner).get());
+
+        subscriber.assertValues(1, 1);
+
+        locals.get(newOwner).onNext(key, 20);
+
+        subscriber.assertValues(1, 1, 20);
+    }
+
+    @Test
+    public void testKeyHasherPlacesKeys()
+    {
+        KeyHasher<String> suffixHasher = new KeyHasher<String>() {
+            @Override
+            public int hash(String key)
+            {
+                return key.substring(key.indexOf('/') + 1).hashCode();
+            }
+        };
+
+        ShardedSubjectMap<String, Integer> node = new ShardedSubjectMap<>(
+                "node-1", locals.get("node-1"), transport, nodeIds, 128, suffixHasher);
+
+        // keys with the same suffix hash the same, so they always share an owner
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(node.ownerOf("a/key-" + i), node.ownerOf("b/key-" + i));
+            assertEquals(nodes.get("node-1").ownerOf("key-" + i), node.ownerOf("a/key-" + i));
+        }
+    }
+
+    @Test
+    public void testEnumKeysHashByName()
+    {
+        int expected = TimeUnit.class.getName().hashCode() * 31 + "SECONDS".hashCode();
+
+        assertEquals(expected, ShardedSubjectMap.DEFAULT_KEY_HASHER.hash(TimeUnit.SECONDS));
+        assertEquals("hello".hashCode(), ShardedSubjectMap.DEFAULT_KEY_HASHER.hash("hello"));
+    }
+}
@@ -9,6 +9,7 @@ import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.subjects.SingleSubject;
 import io.reactivex.subscribers.DisposableSubscriber;
@@ -22,7 +23,10 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -1282,4 +1286,520 @@ public class SubjectMapTest
         testSubscriber12.assertValues(11);
         testSubscriber13.assertValues(12);
     }
+
+    @Test
+    public void testObserveAllFaultsMissingKeysInOneBatch()
+    {
+        final AtomicInteger faultCount = new AtomicInteger(0);
+
+        source.setMultiFaultHandler(new Function<List<String>, Single<List<Integer>>>() {
+            @Override
+            public Single<List<Integer>> apply(List<String> keys) throws Exception {
+                faultCount.incrementAndGet();
+
+                List<Integer> values = new ArrayList<>();
+
+                for (String key : keys) {
+                    values.add(Integer.parseInt(key));
+                }
+
+                return Single.just(values);
+            }
+        });
+
+        TestSubscriber<Integer> boundSubscriber = source.get("1").test();
+
+        assertEquals(1, faultCount.get());
+
+        TestSubscriber<Map<String, Integer>> testSubscriber = source.observeAll(Arrays.asList("1", "2", "3", "2")).test();
+
+        assertEquals(2, faultCount.get());
+
+        Map<String, Integer> expected = new LinkedHashMap<>();
+
+        expected.put("1", 1);
+        expected.put("2", 2);
+        expected.put("3", 3);
+
+        testSubscriber.assertValues(expected);
+
+        source.onNext("3", 30);
+
+        Map<String, Integer> expectedUpdate = new LinkedHashMap<>(expected);
+
+        expectedUpdate.put("3", 30);
+
+        testSubscriber.assertValues(expected, expectedUpdate);
+
+        try {
+            testSubscriber.values().get(1).put("4", 4);
+            fail("Snapshots should be immutable");
+        }
+        catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        testSubscriber.dispose();
+
+        // keys which were only bound by the bulk subscription are no longer bound
+        source.faultAllBound().test().assertComplete();
+
+        assertEquals(3, faultCount.get());
+        boundSubscriber.assertValues(1, 1);
+    }
+
+    @Test
+    public void testObserveAllErrorInFault()
+    {
+        source.setMultiFaultHandler(new Function<List<String>, Single<List<Integer>>>() {
+            @Override
+            public Single<List<Integer>> apply(List<String> keys) throws Exception {
+                return Single.error(new IllegalStateException());
+            }
+        });
+
+        TestSubscriber<Map<String, Integer>> testSubscriber = source.observeAll(Arrays.asList("1", "2")).test();
+
+        testSubscriber.assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void testObserveAllEmpty()
+    {
+        source.observeAll(Collections.<String>emptyList())
+                .test()
+                .assertValues(Collections.<String, Integer>emptyMap());
+    }
+
+    @Test
+    public void testTransactionReleasesTogether()
+    {
+        TestSubscriber<Integer> orderSubscriber = source.get("order").test();
+        TestSubscriber<Map<String, Integer>> combinedSubscriber = source
+                .observeAll(Arrays.asList("order", "item-1", "item-2"))
+                .test();
+
+        source.onNext("order", 1);
+        source.onNext("item-1", 10);
+        source.onNext("item-2", 20);
+
+        combinedSubscriber.assertValueCount(1);
+
+        source.transaction(new Consumer<SubjectMap.Batch<String, Integer>>() {
+            @Override
+            public void accept(SubjectMap.Batch<String, Integer> batch) throws Exception {
+                batch.onNext("order", 2);
+                batch.onNext("item-1", 11);
+                batch.onNext("item-2", 21);
+                batch.onNext("item-3", 31);
+
+                // nothing is released until the transaction completes
+                source.get("order").test().assertValues(1);
+            }
+        });
+
+        orderSubscriber.assertValues(1, 2);
+        combinedSubscriber.assertValueCount(2);
+
+        Map<String, Integer> expected = new LinkedHashMap<>();
+
+        expected.put("order", 2);
+        expected.put("item-1", 11);
+        expected.put("item-2", 21);
+
+        assertEquals(expected, combinedSubscriber.values().get(1));
+    }
+
+    @Test
+    public void testTransactionWithoutCoalescing()
+    {
+        TestSubscriber<Map<String, Integer>> combinedSubscriber = source
+                .observeAll(Arrays.asList("a", "b"))
+                .test();
+
+        source.transaction(new Consumer<SubjectMap.Batch<String, Integer>>() {
+            @Override
+            public void accept(SubjectMap.Batch<String, Integer> batch) throws Exception {
+                batch.onNext("a", 1);
+                batch.onNext("b", 2);
+            }
+        });
+
+        source.transaction(new Consumer<SubjectMap.Batch<String, Integer>>() {
+            @Override
+            public void accept(SubjectMap.Batch<String, Integer> batch) throws Exception {
+                batch.onNext("a", 3);
+                batch.onNext("b", 4);
+            }
+        }, false);
+
+        combinedSubscriber.assertValueCount(3);
+    }
+
+    @Test
+    public void testFailedTransactionReleasesNothing()
+    {
+        TestSubscriber<Integer> testSubscriber = source.get("a").test();
+
+        try {
+            source.transaction(new Consumer<SubjectMap.Batch<String, Integer>>() {
+                @Override
+                public void accept(SubjectMap.Batch<String, Integer> batch) throws Exception {
+                    batch.onNext("a", 1);
+
+                    throw new IllegalStateException();
+                }
+            });
+            fail("Transaction should have thrown");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        testSubscriber.assertNoValues();
+    }
+
+    @Test
+    public void testTransactionIsAtomicAgainstConcurrentEmissions() throws Exception
+    {
+        final int iterations = 20000;
+        final AtomicInteger glitches = new AtomicInteger();
+        final AtomicBoolean finished = new AtomicBoolean();
+
+        source.onNext("a", 0);
+        source.onNext("b", 0);
+        source.onNext("c", 0);
+
+        Disposable disposable = source
+                .observeAll(Arrays.asList("a", "b", "c"))
+                .subscribe(new Consumer<Map<String, Integer>>() {
+                    @Override
+                    public void accept(Map<String, Integer> values)
+                    {
+                        if (!values.get("a").equals(values.get("b"))) {
+                            glitches.incrementAndGet();
+                        }
+                    }
+                });
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> emissions = executorService.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                for (int i = 0; !finished.get(); ++i) {
+                    source.onNext("c", i);
+                }
+            }
+        });
+
+        for (int i = 0; i < iterations; ++i) {
+            final int value = i;
+
+            source.transaction(new Consumer<SubjectMap.Batch<String, Integer>>() {
+                @Override
+                public void accept(SubjectMap.Batch<String, Integer> batch)
+                {
+                    batch.onNext("a", value);
+                    batch.onNext("b", value);
+                }
+            });
+        }
+
+        finished.set(true);
+        emissions.get();
+        executorService.shutdown();
+        disposable.dispose();
+
+        assertEquals(0, glitches.get());
+    }
+
+    @Test
+    public void testFaultIfBoundWithPredicate()
+    {
+        final List<String> faultedKeys = new ArrayList<>();
+
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                faultedKeys.add(key);
+
+                return Single.just(1);
+            }
+        });
+
+        subscribe(source.get("tenant-a:1"), new TestSubscriber<Integer>());
+        subscribe(source.get("tenant-a:2"), new TestSubscriber<Integer>());
+        subscribe(source.get("tenant-b:1"), new TestSubscriber<Integer>());
+
+        faultedKeys.clear();
+
+        source.faultIfBoundMatching(new Predicate<String>() {
+            @Override
+            public boolean test(String key) throws Exception {
+                return key.startsWith("tenant-a:");
+            }
+        }).test().assertComplete();
+
+        Collections.sort(faultedKeys);
+
+        assertEquals(Arrays.asList("tenant-a:1", "tenant-a:2"), faultedKeys);
+    }
+
+    @Test
+    public void testFaultGroupWithKeyIndex()
+    {
+        final AtomicInteger faultCount = new AtomicInteger(0);
+        final List<String> faultedKeys = new ArrayList<>();
+
+        source.setMultiFaultHandler(new Function<List<String>, Single<List<Integer>>>() {
+            @Override
+            public Single<List<Integer>> apply(List<String> keys) throws Exception {
+                faultCount.incrementAndGet();
+                faultedKeys.addAll(keys);
+
+                return Single.just(Collections.nCopies(keys.size(), 1));
+            }
+        });
+
+        KeyIndex<String, String> tenants = source.createIndex(new Function<String, String>() {
+            @Override
+            public String apply(String key) throws Exception {
+                return key.substring(0, key.indexOf(':'));
+            }
+        });
+
+        TestSubscriber<Integer> a1 = source.get("tenant-a:1").test();
+        TestSubscriber<Integer> a2 = source.get("tenant-a:2").test();
+        TestSubscriber<Integer> b1 = source.get("tenant-b:1").test();
+
+        assertEquals(new HashSet<>(Arrays.asList("tenant-a:1", "tenant-a:2")), tenants.boundKeys("tenant-a"));
+
+        faultCount.set(0);
+        faultedKeys.clear();
+
+        tenants.faultIfBound("tenant-a").test().assertComplete();
+
+        // the whole group is faulted together through the multi-fault handler
+        assertEquals(1, faultCount.get());
+        Collections.sort(faultedKeys);
+        assertEquals(Arrays.asList("tenant-a:1", "tenant-a:2"), faultedKeys);
+
+        a1.assertValues(1, 1);
+        b1.assertValues(1);
+
+        a2.dispose();
+
+        assertEquals(Collections.singleton("tenant-a:1"), tenants.boundKeys("tenant-a"));
+
+        source.clearAndDetachAll();
+
+        assertTrue(tenants.boundKeys("tenant-a").isEmpty());
+        assertTrue(tenants.boundKeys("tenant-b").isEmpty());
+    }
+
+    @Test
+    public void testFaultGroupDiscardsRetainedValuesOfUnboundKeys()
+    {
+        final AtomicInteger faultCount = new AtomicInteger(0);
+
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return Single.just(faultCount.incrementAndGet());
+            }
+        });
+        source.setMaximumRetainedWeight(100, new Weigher<String, Integer>() {
+            @Override
+            public long weigh(String key, Integer value)
+            {
+                return 10;
+            }
+        });
+
+        KeyIndex<String, String> tenants = source.createIndex(new Function<String, String>() {
+            @Override
+            public String apply(String key) throws Exception {
+                return key.substring(0, key.indexOf(':'));
+            }
+        });
+
+        Flowable<Integer> a1 = source.get("tenant-a:1");
+        Flowable<Integer> b1 = source.get("tenant-b:1");
+
+        a1.test().assertValues(1).dispose();
+        b1.test().assertValues(2).dispose();
+
+        // neither key is bound, but the group's retained value must not survive the invalidation
+        tenants.faultIfBound("tenant-a").test().assertComplete();
+
+        a1.test().assertValues(3).dispose();
+        b1.test().assertValues(2).dispose();
+
+        assertEquals(3, faultCount.get());
+    }
+
+    @Test
+    public void testBlockingFaultHandler()
+    {
+        final Thread testThread = Thread.currentThread();
+
+        source.setBlockingFaultHandler(new Function<String, Integer>() {
+            @Override
+            public Integer apply(String key) throws Exception {
+                assertNotSame(testThread, Thread.currentThread());
+
+                Thread.sleep(10);
+
+                return Integer.parseInt(key);
+            }
+        });
+
+        TestSubscriber<Integer> testSubscriber = source.get("12").test();
+
+        testSubscriber.awaitCount(1);
+        testSubscriber.assertValues(12);
+    }
+
+    @Test
+    public void testBlockingMultiFaultHandler()
+    {
+        final AtomicInteger faultCount = new AtomicInteger(0);
+
+        source.setBlockingMultiFaultHandler(new Function<List<String>, List<Integer>>() {
+            @Override
+            public List<Integer> apply(List<String> keys) throws Exception {
+                faultCount.incrementAndGet();
+
+                List<Integer> values = new ArrayList<>();
+
+                for (String key : keys) {
+                    values.add(Integer.parseInt(key));
+                }
+
+                return values;
+            }
+        });
+
+        TestSubscriber<Map<String, Integer>> testSubscriber = source.observeAll(Arrays.asList("1", "2", "3")).test();
+
+        testSubscriber.awaitCount(1);
+        testSubscriber.assertValueCount(1);
+
+        assertEquals(1, faultCount.get());
+        assertEquals(Integer.valueOf(3), testSubscriber.values().get(0).get("3"));
+    }
+
+    @Test
+    public void testFootprint()
+    {
+        TestSubscriber<Integer> testSubscriber1 = source.get("hello").test();
+        TestSubscriber<Integer> testSubscriber2 = source.get("world").test();
+        Flowable<Integer> unbound = source.get("unbound");
+
+        source.onNext("hello", 10);
+
+        SubjectMapFootprint footprint = source.footprint(new Weigher<String, Integer>() {
+            @Override
+            public long weigh(String key, Integer value)
+            {
+                return key.length() + value;
+            }
+        });
+
+        assertEquals(3, footprint.getCachedObservables());
+        assertEquals(2, footprint.getLiveSources());
+        assertEquals(2, footprint.getRetainedConnectors());
+        assertEquals(1, footprint.getRetainedValues());
+        assertEquals(15, footprint.getRetainedValueWeight());
+        assertTrue(footprint.getEstimatedBytes() > footprint.getRetainedValueWeight());
+
+        SubjectMapFootprint unweighed = source.footprint();
+
+        assertEquals(0, unweighed.getRetainedValueWeight());
+        assertEquals(footprint.getEstimatedBytes() - 15, unweighed.getEstimatedBytes());
+
+        testSubscriber1.dispose();
+        testSubscriber2.dispose();
+
+        assertEquals(0, source.footprint().getRetainedConnectors());
+        assertNotNull(unbound);
+    }
+
+    @Test
+    public void testFootprintReportsValuesRetainedForUnboundKeys()
+    {
+        source.setMaximumRetainedWeight(100, new Weigher<String, Integer>() {
+            @Override
+            public long weigh(String key, Integer value)
+            {
+                return value;
+            }
+        });
+
+        TestSubscriber<Integer> hello = source.get("hello").test();
+        TestSubscriber<Integer> world = source.get("world").test();
+
+        source.onNext("hello", 10);
+        source.onNext("world", 20);
+
+        SubjectMapFootprint bound = source.footprint();
+
+        assertEquals(0, bound.getUnboundValues());
+        assertEquals(0, bound.getUnboundValueWeight());
+
+        hello.dispose();
+        world.dispose();
+
+        SubjectMapFootprint footprint = source.footprint();
+
+        assertEquals(2, footprint.getUnboundValues());
+        assertEquals(30, footprint.getUnboundValueWeight());
+        assertTrue(footprint.getEstimatedBytes() > 30);
+    }
+
+    @Test
+    public void testRetainedValuesServedWithoutFault()
+    {
+        final AtomicInteger faultCount = new AtomicInteger(0);
+
+        source.setFaultHandler(new Function<String, Single<Integer>>() {
+            @Override
+            public Single<Integer> apply(String key) throws Exception {
+                return Single.just(faultCount.incrementAndGet());
+            }
+        });
+        source.setMaximumRetainedWeight(100, new Weigher<String, Integer>() {
+            @Override
+            public long weigh(String key, Integer value)
+            {
+                return 10;
+            }
+        });
+
+        Flowable<Integer> hello = source.get("hello");
+
+        hello.test().assertValues(1).dispose();
+
+        // the retained value is served when the key is bound again
+        hello.test().assertValues(1).dispose();
+
+        assertEquals(1, faultCount.get());
+
+        // emissions to unbound keys update the retained value
+        source.onNext("hello", 5);
+
+        hello.test().assertValues(5).dispose();
+
+        assertEquals(1, faultCount.get());
+
+        // invalidating the key discards the retained value
+        source.faultIfBound("hello").test().assertComplete();
+
+        int faultsBeforeRebind = faultCount.get();
+
+        hello.test().assertValues(faultsBeforeRebind + 1).dispose();
+
+        assertEquals(faultsBeforeRebind + 1, faultCount.get());
+    }
 }